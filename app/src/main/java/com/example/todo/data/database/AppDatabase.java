@@ -2,28 +2,216 @@ package com.example.todo.data.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.example.todo.data.database.dao.AttachmentBlobDao;
 import com.example.todo.data.database.dao.AttachmentDao;
+import com.example.todo.data.database.dao.PendingFileDeletionDao;
+import com.example.todo.data.database.dao.ReminderDao;
+import com.example.todo.data.database.dao.ScheduledReminderDao;
+import com.example.todo.data.database.dao.StorageUsageDao;
 import com.example.todo.data.database.dao.TaskDao;
 import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.data.database.entities.AttachmentBlob;
+import com.example.todo.data.database.entities.PendingFileDeletion;
+import com.example.todo.data.database.entities.Reminder;
+import com.example.todo.data.database.entities.ScheduledReminder;
+import com.example.todo.data.database.entities.StorageUsage;
 import com.example.todo.data.database.entities.Task;
 
 @Database(
-        entities = {Task.class, Attachment.class},
-        version = 1,
+        entities = {Task.class, Attachment.class, ScheduledReminder.class, Reminder.class, AttachmentBlob.class,
+                PendingFileDeletion.class, StorageUsage.class},
+        version = 12,
         exportSchema = false
 )
 public abstract class AppDatabase extends RoomDatabase
 {
     public abstract TaskDao taskDao();
     public abstract AttachmentDao attachmentDao();
+    public abstract ScheduledReminderDao scheduledReminderDao();
+    public abstract ReminderDao reminderDao();
+    public abstract AttachmentBlobDao attachmentBlobDao();
+    public abstract PendingFileDeletionDao pendingFileDeletionDao();
+    public abstract StorageUsageDao storageUsageDao();
 
     private static volatile AppDatabase INSTANCE;
     private static final String DATABASE_NAME = "todo_database";
 
+    static final Migration MIGRATION_1_2 = new Migration(1, 2)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_isCompleted_completionTime` " +
+                    "ON `tasks` (`isCompleted`, `completionTime`)");
+        }
+    };
+
+    static final Migration MIGRATION_2_3 = new Migration(2, 3)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scheduled_reminders` (" +
+                    "`taskId` INTEGER NOT NULL, " +
+                    "`fireTime` INTEGER NOT NULL, " +
+                    "`payloadHash` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`taskId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scheduled_reminders_fireTime` " +
+                    "ON `scheduled_reminders` (`fireTime`)");
+        }
+    };
+
+    static final Migration MIGRATION_3_4 = new Migration(3, 4)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("ALTER TABLE `tasks` ADD COLUMN `notificationTime` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE `tasks` SET `notificationTime` = " +
+                    "CASE WHEN `notificationEnabled` = 1 AND `isCompleted` = 0 AND `completionTime` > 0 " +
+                    "THEN `completionTime` - `notificationMinutesBefore` * 60000 ELSE 0 END");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_notificationTime` " +
+                    "ON `tasks` (`notificationTime`)");
+        }
+    };
+
+    static final Migration MIGRATION_4_5 = new Migration(4, 5)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `reminders` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`taskId` INTEGER NOT NULL, " +
+                    "`offsetMinutes` INTEGER NOT NULL, " +
+                    "`fireTime` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`taskId`) REFERENCES `tasks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_reminders_taskId_offsetMinutes` " +
+                    "ON `reminders` (`taskId`, `offsetMinutes`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_fireTime` ON `reminders` (`fireTime`)");
+            db.execSQL("INSERT INTO `reminders` (`taskId`, `offsetMinutes`, `fireTime`) " +
+                    "SELECT `id`, `notificationMinutesBefore`, `notificationTime` FROM `tasks`");
+
+            // The ledger is keyed by reminder now; it is rebuilt by the next reconcile pass.
+            db.execSQL("DROP TABLE IF EXISTS `scheduled_reminders`");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scheduled_reminders` (" +
+                    "`reminderId` INTEGER NOT NULL, " +
+                    "`taskId` INTEGER NOT NULL, " +
+                    "`fireTime` INTEGER NOT NULL, " +
+                    "`payloadHash` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`reminderId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scheduled_reminders_taskId` " +
+                    "ON `scheduled_reminders` (`taskId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scheduled_reminders_fireTime` " +
+                    "ON `scheduled_reminders` (`fireTime`)");
+        }
+    };
+
+    static final Migration MIGRATION_5_6 = new Migration(5, 6)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `attachment_blobs` (" +
+                    "`contentHash` TEXT NOT NULL, " +
+                    "`filePath` TEXT, " +
+                    "`size` INTEGER NOT NULL, " +
+                    "`refCount` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`contentHash`))");
+            // Existing attachments keep a null hash and own their file outright.
+            db.execSQL("ALTER TABLE `attachments` ADD COLUMN `contentHash` TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_attachments_contentHash` " +
+                    "ON `attachments` (`contentHash`)");
+        }
+    };
+
+    static final Migration MIGRATION_6_7 = new Migration(6, 7)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `pending_file_deletions` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`attachmentId` INTEGER NOT NULL, " +
+                    "`filePath` TEXT, " +
+                    "`enqueuedAt` INTEGER NOT NULL)");
+        }
+    };
+
+    static final Migration MIGRATION_7_8 = new Migration(7, 8)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("ALTER TABLE `attachments` ADD COLUMN `fileMissing` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_attachments_filePath` " +
+                    "ON `attachments` (`filePath`)");
+        }
+    };
+
+    static final Migration MIGRATION_8_9 = new Migration(8, 9)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `storage_usage` (" +
+                    "`scope` TEXT NOT NULL, " +
+                    "`name` TEXT NOT NULL, " +
+                    "`bytes` INTEGER NOT NULL, " +
+                    "`fileCount` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`scope`, `name`))");
+
+            // Seed the counters once; from here on they are maintained incrementally.
+            db.execSQL("INSERT INTO `storage_usage` " +
+                    "SELECT 'task', CAST(`taskId` AS TEXT), SUM(`fileSize`), COUNT(*) " +
+                    "FROM `attachments` GROUP BY `taskId`");
+            db.execSQL("INSERT INTO `storage_usage` " +
+                    "SELECT 'type', COALESCE(`fileType`, 'other'), SUM(`fileSize`), COUNT(*) " +
+                    "FROM `attachments` GROUP BY COALESCE(`fileType`, 'other')");
+            db.execSQL("INSERT INTO `storage_usage` " +
+                    "SELECT 'total', '', COALESCE(SUM(`fileSize`), 0), COUNT(*) FROM `attachments`");
+            db.execSQL("INSERT INTO `storage_usage` SELECT 'stored', '', " +
+                    "(SELECT COALESCE(SUM(`size`), 0) FROM `attachment_blobs`) + " +
+                    "(SELECT COALESCE(SUM(`fileSize`), 0) FROM `attachments` WHERE `contentHash` IS NULL), " +
+                    "(SELECT COUNT(*) FROM `attachment_blobs`) + " +
+                    "(SELECT COUNT(*) FROM `attachments` WHERE `contentHash` IS NULL)");
+        }
+    };
+
+    static final Migration MIGRATION_9_10 = new Migration(9, 10)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("ALTER TABLE `attachments` ADD COLUMN `compressedSize` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    static final Migration MIGRATION_10_11 = new Migration(10, 11)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("ALTER TABLE `attachments` ADD COLUMN `checksumMismatch` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    static final Migration MIGRATION_11_12 = new Migration(11, 12)
+    {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db)
+        {
+            db.execSQL("ALTER TABLE `attachments` ADD COLUMN `mimeType` TEXT");
+        }
+    };
+
     public static AppDatabase getInstance(Context context)
     {
         if (INSTANCE == null)
@@ -36,7 +224,11 @@ public abstract class AppDatabase extends RoomDatabase
                                     context.getApplicationContext(),
                                     AppDatabase.class,
                                     DATABASE_NAME
-                            ).build();
+                            )
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                                    MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10,
+                                    MIGRATION_10_11, MIGRATION_11_12)
+                            .build();
                 }
             }
         }
@@ -0,0 +1,35 @@
+package com.example.todo.data.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.todo.data.database.entities.AttachmentBlob;
+
+import java.util.List;
+
+@Dao
+public interface AttachmentBlobDao
+{
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(AttachmentBlob blob);
+
+    @Query("SELECT * FROM attachment_blobs WHERE contentHash = :contentHash")
+    AttachmentBlob get(String contentHash);
+
+    @Query("SELECT * FROM attachment_blobs WHERE contentHash > :afterHash ORDER BY contentHash LIMIT :limit")
+    List<AttachmentBlob> getBlobsAfter(String afterHash, int limit);
+
+    @Query("UPDATE attachment_blobs SET refCount = refCount + 1 WHERE contentHash = :contentHash")
+    int addReference(String contentHash);
+
+    @Query("UPDATE attachment_blobs SET refCount = refCount - 1 WHERE contentHash = :contentHash")
+    int releaseReference(String contentHash);
+
+    @Query("UPDATE attachment_blobs SET size = :size WHERE contentHash = :contentHash")
+    void setSize(String contentHash, long size);
+
+    @Query("DELETE FROM attachment_blobs WHERE contentHash = :contentHash AND refCount <= 0")
+    int deleteIfUnreferenced(String contentHash);
+}
@@ -21,7 +21,7 @@ public interface AttachmentDao {
     void update(Attachment attachment);
 
     @Delete
-    void delete(Attachment attachment);
+    int delete(Attachment attachment);
 
     @Query("DELETE FROM attachments WHERE id = :attachmentId")
     void deleteById(int attachmentId);
@@ -43,4 +43,60 @@ public interface AttachmentDao {
 
     @Query("SELECT filePath FROM attachments WHERE taskId = :taskId")
     List<String> getFilePathsForTask(int taskId);
+
+    @Query("SELECT id FROM attachments WHERE taskId = :taskId")
+    List<Integer> getAttachmentIdsForTask(int taskId);
+
+    @Query("SELECT * FROM attachments WHERE taskId = :taskId")
+    List<Attachment> getAttachmentsForTaskSync(int taskId);
+
+    @Query("SELECT DISTINCT filePath FROM attachments WHERE filePath IN (:filePaths)")
+    List<String> getReferencedFilePaths(List<String> filePaths);
+
+    @Query("SELECT * FROM attachments WHERE filePath > :afterPath AND filePath <= :upToPath ORDER BY filePath")
+    List<Attachment> getAttachmentsInPathRange(String afterPath, String upToPath);
+
+    @Query("SELECT * FROM attachments WHERE filePath > :afterPath ORDER BY filePath")
+    List<Attachment> getAttachmentsAfterPath(String afterPath);
+
+    @Query("UPDATE attachments SET fileMissing = :missing WHERE id IN (:attachmentIds)")
+    void setFileMissing(List<Integer> attachmentIds, boolean missing);
+
+    @Query("SELECT COUNT(*) FROM attachments WHERE fileMissing = 1")
+    int getMissingAttachmentCount();
+
+    @Query("SELECT * FROM attachments WHERE id = :attachmentId")
+    Attachment getAttachmentByIdSync(int attachmentId);
+
+    /**
+     * Raw files only used by tasks that were completed and due before {@code cutoff}.
+     */
+    @Query("SELECT a.* FROM attachments a JOIN tasks t ON t.id = a.taskId " +
+            "WHERE a.id > :afterId AND a.compressedSize = 0 AND a.fileMissing = 0 " +
+            "AND a.fileType NOT IN ('image', 'video', 'audio') " +
+            "AND t.isCompleted = 1 AND t.completionTime < :cutoff " +
+            "AND NOT EXISTS (SELECT 1 FROM attachments b JOIN tasks u ON u.id = b.taskId " +
+            "WHERE b.filePath = a.filePath AND (u.isCompleted = 0 OR u.completionTime >= :cutoff)) " +
+            "ORDER BY a.id LIMIT :limit")
+    List<Attachment> getColdCandidates(long cutoff, int afterId, int limit);
+
+    @Query("SELECT NOT EXISTS (SELECT 1 FROM attachments b JOIN tasks u ON u.id = b.taskId " +
+            "WHERE b.filePath = :filePath AND (b.compressedSize != 0 OR u.isCompleted = 0 OR u.completionTime >= :cutoff))")
+    boolean isStillColdCandidate(String filePath, long cutoff);
+
+    @Query("UPDATE attachments SET contentHash = :contentHash WHERE id = :attachmentId AND contentHash IS NULL")
+    int setContentHashIfMissing(int attachmentId, String contentHash);
+
+    @Query("SELECT COALESCE(MAX(compressedSize), 0) FROM attachments WHERE filePath = :filePath")
+    long getCompressedSize(String filePath);
+
+    @Query("UPDATE attachments SET compressedSize = :compressedSize WHERE filePath = :filePath")
+    void setCompressedSize(String filePath, long compressedSize);
+
+    @Query("UPDATE attachments SET checksumMismatch = :mismatch " +
+            "WHERE contentHash = :contentHash AND checksumMismatch != :mismatch")
+    int setChecksumMismatch(String contentHash, boolean mismatch);
+
+    @Query("SELECT COUNT(*) FROM attachments WHERE checksumMismatch = 1")
+    int getChecksumMismatchCount();
 }
\ No newline at end of file
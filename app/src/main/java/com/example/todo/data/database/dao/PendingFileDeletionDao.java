@@ -0,0 +1,25 @@
+package com.example.todo.data.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.example.todo.data.database.entities.PendingFileDeletion;
+
+import java.util.List;
+
+@Dao
+public interface PendingFileDeletionDao
+{
+    @Insert
+    void insertAll(List<PendingFileDeletion> deletions);
+
+    @Query("SELECT * FROM pending_file_deletions ORDER BY id LIMIT :limit")
+    List<PendingFileDeletion> getBatch(int limit);
+
+    @Query("SELECT COUNT(*) FROM pending_file_deletions")
+    int getCount();
+
+    @Query("DELETE FROM pending_file_deletions WHERE id IN (:ids)")
+    void deleteByIds(List<Long> ids);
+}
@@ -0,0 +1,57 @@
+package com.example.todo.data.database.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.example.todo.data.database.entities.PendingReminder;
+import com.example.todo.data.database.entities.Reminder;
+import com.example.todo.data.database.entities.Task;
+
+import java.util.List;
+
+@Dao
+public interface ReminderDao
+{
+    @Insert
+    void insertAll(List<Reminder> reminders);
+
+    @Query("DELETE FROM reminders WHERE taskId = :taskId")
+    void deleteForTask(int taskId);
+
+    @Query("SELECT * FROM reminders WHERE taskId = :taskId ORDER BY offsetMinutes DESC")
+    List<Reminder> getRemindersForTaskSync(int taskId);
+
+    @Query("SELECT * FROM reminders WHERE taskId = :taskId ORDER BY offsetMinutes DESC")
+    LiveData<List<Reminder>> getRemindersForTask(int taskId);
+
+    @Query("UPDATE reminders SET fireTime = " +
+            "CASE WHEN :active THEN :completionTime - offsetMinutes * 60000 ELSE 0 END " +
+            "WHERE taskId = :taskId")
+    void refreshFireTimes(int taskId, long completionTime, boolean active);
+
+    @Query("UPDATE reminders SET fireTime = 0 WHERE taskId IN (:taskIds)")
+    void clearFireTimesForTasks(List<Integer> taskIds);
+
+    @Query("SELECT MIN(fireTime) FROM reminders WHERE fireTime > :after")
+    Long getNextFireTime(long after);
+
+    @Query("SELECT DISTINCT tasks.* FROM reminders " +
+            "INNER JOIN tasks ON tasks.id = reminders.taskId " +
+            "WHERE reminders.fireTime > :from AND reminders.fireTime <= :until " +
+            "ORDER BY tasks.completionTime ASC")
+    List<Task> getTasksWithRemindersBetween(long from, long until);
+
+    @Query("SELECT reminders.id AS reminderId, reminders.taskId AS taskId, reminders.fireTime AS fireTime, " +
+            "tasks.title AS title, tasks.description AS description, tasks.completionTime AS completionTime " +
+            "FROM reminders INNER JOIN tasks ON tasks.id = reminders.taskId " +
+            "WHERE reminders.fireTime > :after")
+    List<PendingReminder> getPendingReminders(long after);
+
+    @Query("SELECT reminders.id AS reminderId, reminders.taskId AS taskId, reminders.fireTime AS fireTime, " +
+            "tasks.title AS title, tasks.description AS description, tasks.completionTime AS completionTime " +
+            "FROM reminders INNER JOIN tasks ON tasks.id = reminders.taskId " +
+            "WHERE reminders.taskId = :taskId AND reminders.fireTime > :after")
+    List<PendingReminder> getPendingRemindersForTask(int taskId, long after);
+}
@@ -0,0 +1,35 @@
+package com.example.todo.data.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.todo.data.database.entities.ScheduledReminder;
+
+import java.util.List;
+
+@Dao
+public interface ScheduledReminderDao
+{
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<ScheduledReminder> reminders);
+
+    @Query("SELECT * FROM scheduled_reminders WHERE taskId = :taskId")
+    List<ScheduledReminder> getByTaskId(int taskId);
+
+    @Query("SELECT * FROM scheduled_reminders")
+    List<ScheduledReminder> getAll();
+
+    @Query("DELETE FROM scheduled_reminders WHERE taskId = :taskId")
+    void deleteByTaskId(int taskId);
+
+    @Query("DELETE FROM scheduled_reminders WHERE taskId IN (:taskIds)")
+    void deleteByTaskIds(List<Integer> taskIds);
+
+    @Query("DELETE FROM scheduled_reminders WHERE reminderId IN (:reminderIds)")
+    void deleteByReminderIds(List<Integer> reminderIds);
+
+    @Query("DELETE FROM scheduled_reminders WHERE fireTime > :from AND fireTime <= :until")
+    void deleteFiringBetween(long from, long until);
+}
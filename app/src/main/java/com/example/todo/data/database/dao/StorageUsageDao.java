@@ -0,0 +1,44 @@
+package com.example.todo.data.database.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.example.todo.data.database.entities.StorageUsage;
+
+import java.util.List;
+
+@Dao
+public interface StorageUsageDao
+{
+    @Query("INSERT OR IGNORE INTO storage_usage (scope, name, bytes, fileCount) VALUES (:scope, :name, 0, 0)")
+    void ensure(String scope, String name);
+
+    @Query("UPDATE storage_usage SET bytes = bytes + :bytes, fileCount = fileCount + :files " +
+            "WHERE scope = :scope AND name = :name")
+    void add(String scope, String name, long bytes, int files);
+
+    /**
+     * Must run inside the transaction that changes the attachments being counted.
+     */
+    default void adjust(String scope, String name, long bytes, int files)
+    {
+        ensure(scope, name);
+        add(scope, name, bytes, files);
+    }
+
+    @Query("DELETE FROM storage_usage WHERE scope = :scope AND name = :name")
+    void delete(String scope, String name);
+
+    @Query("SELECT * FROM storage_usage WHERE scope = :scope AND name = :name")
+    StorageUsage get(String scope, String name);
+
+    @Query("SELECT * FROM storage_usage WHERE scope = :scope AND name = :name")
+    LiveData<StorageUsage> observe(String scope, String name);
+
+    @Query("SELECT * FROM storage_usage WHERE scope = :scope ORDER BY bytes DESC")
+    List<StorageUsage> getByScope(String scope);
+
+    @Query("SELECT * FROM storage_usage WHERE scope = :scope ORDER BY bytes DESC")
+    LiveData<List<StorageUsage>> observeByScope(String scope);
+}
@@ -7,6 +7,7 @@ import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
 
+import com.example.todo.data.database.entities.DailyDigest;
 import com.example.todo.data.database.entities.Task;
 
 import java.util.List;
@@ -26,6 +27,9 @@ public interface TaskDao
     @Query("DELETE FROM tasks WHERE id = :taskId")
     void deleteById(int taskId);
 
+    @Query("UPDATE tasks SET isCompleted = 1, notificationTime = 0 WHERE id IN (:taskIds) AND isCompleted = 0")
+    int markCompleted(List<Integer> taskIds);
+
     @Query("SELECT * FROM tasks ORDER BY completionTime ASC")
     LiveData<List<Task>> getAllTasksSortedByDueTime();
 
@@ -35,6 +39,9 @@ public interface TaskDao
     @Query("SELECT * FROM tasks WHERE id = :taskId")
     LiveData<Task> getTaskById(int taskId);
 
+    @Query("SELECT * FROM tasks WHERE id = :taskId")
+    Task getTaskByIdSync(int taskId);
+
     @Query("SELECT * FROM tasks WHERE isCompleted = 0 ORDER BY completionTime ASC")
     LiveData<List<Task>> getIncompleteTasks();
 
@@ -47,9 +54,19 @@ public interface TaskDao
     @Query("SELECT * FROM tasks WHERE category = :category ORDER BY completionTime ASC")
     LiveData<List<Task>> getTasksByCategory(String category);
 
-    @Query("SELECT * FROM tasks WHERE notificationEnabled = 1 AND isCompleted = 0 AND completionTime > :currentTime")
+    @Query("SELECT * FROM tasks WHERE notificationTime > :currentTime ORDER BY notificationTime ASC")
     List<Task> getTasksForNotification(long currentTime);
 
+    @Query("SELECT " +
+            "COALESCE(SUM(CASE WHEN completionTime > 0 AND completionTime < :now THEN 1 ELSE 0 END), 0) AS overdueCount, " +
+            "COALESCE(SUM(CASE WHEN completionTime >= :now AND completionTime <= :endOfDay THEN 1 ELSE 0 END), 0) AS dueTodayCount, " +
+            "(SELECT GROUP_CONCAT(line, char(31)) FROM (" +
+            "SELECT title || ' • ' || strftime('%d.%m %H:%M', completionTime / 1000, 'unixepoch', 'localtime') AS line " +
+            "FROM tasks WHERE isCompleted = 0 AND completionTime >= :now " +
+            "ORDER BY completionTime ASC LIMIT :limit)) AS upcoming " +
+            "FROM tasks WHERE isCompleted = 0")
+    DailyDigest getDailyDigest(long now, long endOfDay, int limit);
+
     @Query("SELECT DISTINCT category FROM tasks ORDER BY category ASC")
     LiveData<List<String>> getAllCategories();
 
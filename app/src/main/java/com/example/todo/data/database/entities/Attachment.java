@@ -2,6 +2,7 @@ package com.example.todo.data.database.entities;
 
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 @Entity(
@@ -11,10 +12,16 @@ import androidx.room.PrimaryKey;
                 parentColumns = "id",
                 childColumns = "taskId",
                 onDelete = ForeignKey.CASCADE
-        )
+        ),
+        indices = {
+                @Index("contentHash"),
+                @Index("filePath")
+        }
 )
 public class Attachment
 {
+    public static final long COMPRESSION_SKIPPED = -1;
+
     @PrimaryKey(autoGenerate = true)
     private int id;
 
@@ -22,9 +29,24 @@ public class Attachment
     private String fileName;
     private String filePath;
     private String fileType;
+    // Sniffed from the content on import; null for attachments imported before that.
+    private String mimeType;
     private long fileSize;
     private long createdTime;
 
+    // SHA-256 of the stored bytes; null for attachments imported before dedup storage.
+    private String contentHash;
+
+    // Set by the reconciler when the file behind filePath is gone.
+    private boolean fileMissing;
+
+    // Bytes on disk once the file has moved to cold storage; 0 while it is stored raw and
+    // COMPRESSION_SKIPPED when compressing it would not pay off.
+    private long compressedSize;
+
+    // Set by the checksum verifier when the stored bytes no longer hash to contentHash.
+    private boolean checksumMismatch;
+
     public Attachment()
     {
         this.createdTime = System.currentTimeMillis();
@@ -64,6 +86,11 @@ public class Attachment
         return fileType;
     }
 
+    public String getMimeType()
+    {
+        return mimeType;
+    }
+
     public long getFileSize()
     {
         return fileSize;
@@ -99,6 +126,11 @@ public class Attachment
         this.fileType = fileType;
     }
 
+    public void setMimeType(String mimeType)
+    {
+        this.mimeType = mimeType;
+    }
+
     public void setFileSize(long fileSize)
     {
         this.fileSize = fileSize;
@@ -108,4 +140,49 @@ public class Attachment
     {
         this.createdTime = createdTime;
     }
+
+    public String getContentHash()
+    {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash)
+    {
+        this.contentHash = contentHash;
+    }
+
+    public boolean isFileMissing()
+    {
+        return fileMissing;
+    }
+
+    public void setFileMissing(boolean fileMissing)
+    {
+        this.fileMissing = fileMissing;
+    }
+
+    public long getCompressedSize()
+    {
+        return compressedSize;
+    }
+
+    public void setCompressedSize(long compressedSize)
+    {
+        this.compressedSize = compressedSize;
+    }
+
+    public boolean isCompressed()
+    {
+        return compressedSize > 0;
+    }
+
+    public boolean isChecksumMismatch()
+    {
+        return checksumMismatch;
+    }
+
+    public void setChecksumMismatch(boolean checksumMismatch)
+    {
+        this.checksumMismatch = checksumMismatch;
+    }
 }
\ No newline at end of file
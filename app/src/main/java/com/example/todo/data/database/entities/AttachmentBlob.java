@@ -0,0 +1,75 @@
+package com.example.todo.data.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * One stored file, shared by every attachment with the same content.
+ * The file is removed only when {@code refCount} drops to zero.
+ */
+@Entity(tableName = "attachment_blobs")
+public class AttachmentBlob
+{
+    @PrimaryKey
+    @NonNull
+    private String contentHash = "";
+
+    private String filePath;
+    private long size;
+    private int refCount;
+
+    public AttachmentBlob()
+    {
+    }
+
+    @Ignore
+    public AttachmentBlob(@NonNull String contentHash, String filePath, long size)
+    {
+        this.contentHash = contentHash;
+        this.filePath = filePath;
+        this.size = size;
+    }
+
+    @NonNull
+    public String getContentHash()
+    {
+        return contentHash;
+    }
+
+    public String getFilePath()
+    {
+        return filePath;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    public int getRefCount()
+    {
+        return refCount;
+    }
+
+    public void setContentHash(@NonNull String contentHash)
+    {
+        this.contentHash = contentHash;
+    }
+
+    public void setFilePath(String filePath)
+    {
+        this.filePath = filePath;
+    }
+
+    public void setSize(long size)
+    {
+        this.size = size;
+    }
+
+    public void setRefCount(int refCount)
+    {
+        this.refCount = refCount;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.todo.data.database.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One row of open-task counters for the morning digest, plus the next few tasks
+ * pre-formatted as "title • dd.MM HH:mm" lines.
+ */
+public class DailyDigest
+{
+    public static final String LINE_SEPARATOR = "\u001f";
+
+    public int overdueCount;
+    public int dueTodayCount;
+    public String upcoming;
+
+    public List<String> getUpcomingLines()
+    {
+        if (upcoming == null || upcoming.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(upcoming.split(LINE_SEPARATOR));
+    }
+
+    public boolean isEmpty()
+    {
+        return overdueCount == 0 && dueTodayCount == 0 && (upcoming == null || upcoming.isEmpty());
+    }
+}
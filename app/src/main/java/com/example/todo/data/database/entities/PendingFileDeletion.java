@@ -0,0 +1,79 @@
+package com.example.todo.data.database.entities;
+
+import androidx.annotation.Nullable;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * A deleted attachment whose thumbnails, and possibly file, still have to be removed
+ * from disk. Rows are written in the same transaction as the deletion, so the work is
+ * not lost if the process dies before it runs.
+ */
+@Entity(tableName = "pending_file_deletions")
+public class PendingFileDeletion
+{
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private int attachmentId;
+
+    // Null when the stored file is still shared with other attachments.
+    @Nullable
+    private String filePath;
+
+    private long enqueuedAt;
+
+    public PendingFileDeletion()
+    {
+    }
+
+    @Ignore
+    public PendingFileDeletion(int attachmentId, @Nullable String filePath)
+    {
+        this.attachmentId = attachmentId;
+        this.filePath = filePath;
+        this.enqueuedAt = System.currentTimeMillis();
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public int getAttachmentId()
+    {
+        return attachmentId;
+    }
+
+    @Nullable
+    public String getFilePath()
+    {
+        return filePath;
+    }
+
+    public long getEnqueuedAt()
+    {
+        return enqueuedAt;
+    }
+
+    public void setId(long id)
+    {
+        this.id = id;
+    }
+
+    public void setAttachmentId(int attachmentId)
+    {
+        this.attachmentId = attachmentId;
+    }
+
+    public void setFilePath(@Nullable String filePath)
+    {
+        this.filePath = filePath;
+    }
+
+    public void setEnqueuedAt(long enqueuedAt)
+    {
+        this.enqueuedAt = enqueuedAt;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.todo.data.database.entities;
+
+/**
+ * A reminder row joined with the task fields that end up in its notification.
+ */
+public class PendingReminder
+{
+    public int reminderId;
+    public int taskId;
+    public long fireTime;
+    public String title;
+    public String description;
+    public long completionTime;
+
+    public ScheduledReminder toLedgerEntry()
+    {
+        return new ScheduledReminder(
+                reminderId,
+                taskId,
+                fireTime,
+                ScheduledReminder.payloadHashOf(title, description, completionTime)
+        );
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.todo.data.database.entities;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+@Entity(
+        tableName = "reminders",
+        foreignKeys = @ForeignKey(
+                entity = Task.class,
+                parentColumns = "id",
+                childColumns = "taskId",
+                onDelete = ForeignKey.CASCADE
+        ),
+        indices = {
+                @Index(value = {"taskId", "offsetMinutes"}, unique = true),
+                @Index("fireTime")
+        }
+)
+public class Reminder
+{
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+
+    private int taskId;
+    private int offsetMinutes;
+
+    // Absolute fire time, or 0 while the owning task has no pending reminders.
+    private long fireTime;
+
+    public Reminder()
+    {
+    }
+
+    @Ignore
+    public Reminder(Task task, int offsetMinutes)
+    {
+        this.taskId = task.getId();
+        this.offsetMinutes = offsetMinutes;
+        this.fireTime = computeFireTime(task, offsetMinutes);
+    }
+
+    public static long computeFireTime(Task task, int offsetMinutes)
+    {
+        if (!task.isNotificationEnabled() || task.isCompleted() || task.getCompletionTime() <= 0)
+        {
+            return 0;
+        }
+        return task.getCompletionTime() - (offsetMinutes * 60 * 1000L);
+    }
+
+    public int getId()
+    {
+        return id;
+    }
+
+    public int getTaskId()
+    {
+        return taskId;
+    }
+
+    public int getOffsetMinutes()
+    {
+        return offsetMinutes;
+    }
+
+    public long getFireTime()
+    {
+        return fireTime;
+    }
+
+    public void setId(int id)
+    {
+        this.id = id;
+    }
+
+    public void setTaskId(int taskId)
+    {
+        this.taskId = taskId;
+    }
+
+    public void setOffsetMinutes(int offsetMinutes)
+    {
+        this.offsetMinutes = offsetMinutes;
+    }
+
+    public void setFireTime(long fireTime)
+    {
+        this.fireTime = fireTime;
+    }
+}
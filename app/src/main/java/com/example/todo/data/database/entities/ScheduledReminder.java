@@ -0,0 +1,92 @@
+package com.example.todo.data.database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Objects;
+
+@Entity(
+        tableName = "scheduled_reminders",
+        indices = {
+                @Index("taskId"),
+                @Index("fireTime")
+        }
+)
+public class ScheduledReminder
+{
+    @PrimaryKey
+    private int reminderId;
+
+    private int taskId;
+    private long fireTime;
+    private int payloadHash;
+
+    public ScheduledReminder()
+    {
+    }
+
+    @Ignore
+    public ScheduledReminder(int reminderId, int taskId, long fireTime, int payloadHash)
+    {
+        this.reminderId = reminderId;
+        this.taskId = taskId;
+        this.fireTime = fireTime;
+        this.payloadHash = payloadHash;
+    }
+
+    public static int payloadHashOf(String title, String description, long completionTime)
+    {
+        return Objects.hash(title, description, completionTime);
+    }
+
+    public boolean isSameAs(ScheduledReminder other)
+    {
+        return other != null
+                && reminderId == other.reminderId
+                && taskId == other.taskId
+                && fireTime == other.fireTime
+                && payloadHash == other.payloadHash;
+    }
+
+    public int getReminderId()
+    {
+        return reminderId;
+    }
+
+    public int getTaskId()
+    {
+        return taskId;
+    }
+
+    public long getFireTime()
+    {
+        return fireTime;
+    }
+
+    public int getPayloadHash()
+    {
+        return payloadHash;
+    }
+
+    public void setReminderId(int reminderId)
+    {
+        this.reminderId = reminderId;
+    }
+
+    public void setTaskId(int taskId)
+    {
+        this.taskId = taskId;
+    }
+
+    public void setFireTime(long fireTime)
+    {
+        this.fireTime = fireTime;
+    }
+
+    public void setPayloadHash(int payloadHash)
+    {
+        this.payloadHash = payloadHash;
+    }
+}
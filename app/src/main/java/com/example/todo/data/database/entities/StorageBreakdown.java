@@ -0,0 +1,38 @@
+package com.example.todo.data.database.entities;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of the {@link StorageUsage} counters for display.
+ */
+public class StorageBreakdown
+{
+    public final long totalBytes;
+    public final int totalFiles;
+    public final long storedBytes;
+    public final int storedFiles;
+    public final List<StorageUsage> byType;
+    public final List<StorageUsage> byTask;
+
+    public StorageBreakdown(@Nullable StorageUsage total, @Nullable StorageUsage stored,
+                            @Nullable List<StorageUsage> byType, @Nullable List<StorageUsage> byTask)
+    {
+        this.totalBytes = total != null ? total.getBytes() : 0;
+        this.totalFiles = total != null ? total.getFileCount() : 0;
+        this.storedBytes = stored != null ? stored.getBytes() : 0;
+        this.storedFiles = stored != null ? stored.getFileCount() : 0;
+        this.byType = byType != null ? byType : new ArrayList<>();
+        this.byTask = byTask != null ? byTask : new ArrayList<>();
+    }
+
+    /**
+     * @return bytes that attachments would take without deduplication, minus what is on disk
+     */
+    public long getSavedBytes()
+    {
+        return Math.max(0, totalBytes - storedBytes);
+    }
+}
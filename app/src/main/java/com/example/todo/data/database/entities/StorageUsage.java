@@ -0,0 +1,78 @@
+package com.example.todo.data.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Running byte and file counters for attachments, kept in step with the attachments
+ * table so usage never has to be measured on disk.
+ *
+ * Task, type and total scopes count every attachment at its own size. The stored scope
+ * counts what is actually on disk, where deduplicated content is counted once.
+ */
+@Entity(tableName = "storage_usage", primaryKeys = {"scope", "name"})
+public class StorageUsage
+{
+    public static final String SCOPE_TASK = "task";
+    public static final String SCOPE_TYPE = "type";
+    public static final String SCOPE_TOTAL = "total";
+    public static final String SCOPE_STORED = "stored";
+    public static final String NAME_ALL = "";
+    public static final String TYPE_OTHER = "other";
+
+    @NonNull
+    private String scope = SCOPE_TOTAL;
+
+    @NonNull
+    private String name = NAME_ALL;
+
+    private long bytes;
+    private int fileCount;
+
+    public static String typeName(String fileType)
+    {
+        return fileType != null ? fileType : TYPE_OTHER;
+    }
+
+    @NonNull
+    public String getScope()
+    {
+        return scope;
+    }
+
+    @NonNull
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    public int getFileCount()
+    {
+        return fileCount;
+    }
+
+    public void setScope(@NonNull String scope)
+    {
+        this.scope = scope;
+    }
+
+    public void setName(@NonNull String name)
+    {
+        this.name = name;
+    }
+
+    public void setBytes(long bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    public void setFileCount(int fileCount)
+    {
+        this.fileCount = fileCount;
+    }
+}
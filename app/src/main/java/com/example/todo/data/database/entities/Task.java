@@ -1,9 +1,18 @@
 package com.example.todo.data.database.entities;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "tasks")
+@Entity(
+        tableName = "tasks",
+        indices = {
+                @Index({"isCompleted", "completionTime"}),
+                @Index("notificationTime")
+        }
+)
 public class Task
 {
     @PrimaryKey(autoGenerate = true)
@@ -19,6 +28,10 @@ public class Task
     private boolean hasAttachments;
     private int notificationMinutesBefore;
 
+    // Absolute reminder fire time, or 0 when no reminder is pending. Kept in sync by the setters.
+    @ColumnInfo(defaultValue = "0")
+    private long notificationTime;
+
     public Task()
     {
         this.creationTime = System.currentTimeMillis();
@@ -29,6 +42,34 @@ public class Task
         this.category = "General";
     }
 
+    private void updateNotificationTime()
+    {
+        if (notificationEnabled && !isCompleted && completionTime > 0)
+        {
+            notificationTime = completionTime - (notificationMinutesBefore * 60 * 1000L);
+        }
+        else
+        {
+            notificationTime = 0;
+        }
+    }
+
+    @Ignore
+    public Task(Task other)
+    {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.creationTime = other.creationTime;
+        this.completionTime = other.completionTime;
+        this.isCompleted = other.isCompleted;
+        this.notificationEnabled = other.notificationEnabled;
+        this.category = other.category;
+        this.hasAttachments = other.hasAttachments;
+        this.notificationMinutesBefore = other.notificationMinutesBefore;
+        this.notificationTime = other.notificationTime;
+    }
+
     public int getId()
     {
         return id;
@@ -79,6 +120,11 @@ public class Task
         return notificationMinutesBefore;
     }
 
+    public long getNotificationTime()
+    {
+        return notificationTime;
+    }
+
     public void setId(int id)
     {
         this.id = id;
@@ -102,16 +148,19 @@ public class Task
     public void setCompletionTime(long completionTime)
     {
         this.completionTime = completionTime;
+        updateNotificationTime();
     }
 
     public void setCompleted(boolean completed)
     {
         isCompleted = completed;
+        updateNotificationTime();
     }
 
     public void setNotificationEnabled(boolean notificationEnabled)
     {
         this.notificationEnabled = notificationEnabled;
+        updateNotificationTime();
     }
 
     public void setCategory(String category)
@@ -127,5 +176,11 @@ public class Task
     public void setNotificationMinutesBefore(int notificationMinutesBefore)
     {
         this.notificationMinutesBefore = notificationMinutesBefore;
+        updateNotificationTime();
+    }
+
+    public void setNotificationTime(long notificationTime)
+    {
+        this.notificationTime = notificationTime;
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.example.todo.data.repository;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.room.InvalidationTracker;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.TaskDao;
+import com.example.todo.data.database.entities.Task;
+
+import java.util.Set;
+
+/**
+ * Application-wide read-through cache of recently touched tasks.
+ *
+ * Entries are dropped whenever Room reports a change to the tasks table, so a cached
+ * value is never older than the last committed write. Tasks are copied in and out
+ * because callers mutate them before writing back.
+ */
+final class TaskCache
+{
+    private static final int MAX_ENTRIES = 64;
+
+    private static volatile TaskCache INSTANCE;
+
+    private final TaskDao taskDao;
+    private final LruCache<Integer, Task> cache = new LruCache<>(MAX_ENTRIES);
+    private final Object lock = new Object();
+    private long generation;
+
+    private TaskCache(AppDatabase database)
+    {
+        taskDao = database.taskDao();
+        database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("tasks")
+        {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables)
+            {
+                invalidateAll();
+            }
+        });
+    }
+
+    static TaskCache getInstance(Context context)
+    {
+        if (INSTANCE == null)
+        {
+            synchronized (TaskCache.class)
+            {
+                if (INSTANCE == null)
+                {
+                    INSTANCE = new TaskCache(AppDatabase.getInstance(context));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    @WorkerThread
+    @Nullable
+    Task get(int taskId)
+    {
+        long observedGeneration;
+        synchronized (lock)
+        {
+            Task cached = cache.get(taskId);
+            if (cached != null)
+            {
+                return new Task(cached);
+            }
+            observedGeneration = generation;
+        }
+
+        Task loaded = taskDao.getTaskByIdSync(taskId);
+        if (loaded == null)
+        {
+            return null;
+        }
+
+        synchronized (lock)
+        {
+            // A write committed while we were reading, so this row may already be stale.
+            if (observedGeneration == generation)
+            {
+                cache.put(taskId, new Task(loaded));
+            }
+        }
+        return loaded;
+    }
+
+    void put(Task task)
+    {
+        if (task == null || task.getId() <= 0) return;
+
+        synchronized (lock)
+        {
+            cache.put(task.getId(), new Task(task));
+        }
+    }
+
+    void remove(int taskId)
+    {
+        synchronized (lock)
+        {
+            generation++;
+            cache.remove(taskId);
+        }
+    }
+
+    void invalidateAll()
+    {
+        synchronized (lock)
+        {
+            generation++;
+            cache.evictAll();
+        }
+    }
+}
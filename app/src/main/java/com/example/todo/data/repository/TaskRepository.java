@@ -1,31 +1,71 @@
 package com.example.todo.data.repository;
 
 import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 
 import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.AttachmentBlobDao;
 import com.example.todo.data.database.dao.AttachmentDao;
+import com.example.todo.data.database.dao.ReminderDao;
+import com.example.todo.data.database.dao.StorageUsageDao;
 import com.example.todo.data.database.dao.TaskDao;
 import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.data.database.entities.AttachmentBlob;
+import com.example.todo.data.database.entities.PendingFileDeletion;
+import com.example.todo.data.database.entities.Reminder;
+import com.example.todo.data.database.entities.StorageBreakdown;
+import com.example.todo.data.database.entities.StorageUsage;
 import com.example.todo.data.database.entities.Task;
-
+import com.example.todo.utils.ReminderScheduler;
+import com.example.todo.utils.ThumbnailService;
+import com.example.todo.utils.FileReclaimer;
+import com.example.todo.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class TaskRepository
 {
+    private final AppDatabase database;
     private final TaskDao taskDao;
     private final AttachmentDao attachmentDao;
+    private final AttachmentBlobDao blobDao;
+    private final StorageUsageDao usageDao;
     private final LiveData<List<Task>> allTasks;
+    private final TaskCache taskCache;
+    private final ReminderScheduler reminderScheduler;
+    private final FileReclaimer fileReclaimer;
+    private final ThumbnailService thumbnailService;
+    private final int listThumbnailSize;
     private final ExecutorService executorService;
 
     public TaskRepository(Application application)
     {
-        AppDatabase database = AppDatabase.getInstance(application);
+        database = AppDatabase.getInstance(application);
         taskDao = database.taskDao();
         attachmentDao = database.attachmentDao();
+        blobDao = database.attachmentBlobDao();
+        usageDao = database.storageUsageDao();
         allTasks = taskDao.getAllTasksSortedByDueTime();
+        taskCache = TaskCache.getInstance(application);
+        reminderScheduler = new ReminderScheduler(application);
+        fileReclaimer = FileReclaimer.getInstance(application);
+        thumbnailService = ThumbnailService.getInstance(application);
+        listThumbnailSize = ThumbnailService.getListThumbnailSize(application);
+        // Picks up deletions queued before the process was last killed.
+        fileReclaimer.schedule();
 
         executorService = Executors.newFixedThreadPool(2);
     }
@@ -49,6 +89,20 @@ public class TaskRepository
         return taskDao.getTaskById(taskId);
     }
 
+    @WorkerThread
+    @Nullable
+    public Task getTaskByIdSync(int taskId)
+    {
+        return taskCache.get(taskId);
+    }
+
+    @WorkerThread
+    @Nullable
+    public static Task getTaskSync(Context context, int taskId)
+    {
+        return TaskCache.getInstance(context).get(taskId);
+    }
+
     public LiveData<List<Task>> searchTasks(String query)
     {
         return taskDao.searchTasks("%" + query + "%");
@@ -75,30 +129,238 @@ public class TaskRepository
     }
 
     public void insert(Task task, OnTaskInsertedListener listener)
+    {
+        insert(task, null, listener);
+    }
+
+    public void insert(Task task, @Nullable List<Integer> reminderOffsets, OnTaskInsertedListener listener)
     {
         executorService.execute(() ->
         {
-            long taskId = taskDao.insert(task);
-            task.setId((int) taskId);
+            List<Integer> offsets = reminderOffsets != null
+                    ? reminderOffsets
+                    : Collections.singletonList(task.getNotificationMinutesBefore());
+            applyReminderOffsets(task, offsets);
+
+            database.runInTransaction(() ->
+            {
+                long taskId = taskDao.insert(task);
+                task.setId((int) taskId);
+                writeReminders(database, task, offsets);
+            });
+
+            taskCache.put(task);
+            reminderScheduler.onTaskChanged(task.getId());
             if (listener != null) {
                 listener.onTaskInserted(task);
             }
         });
     }
 
+    /**
+     * Inserts {@code copy} with the attachments of {@code source}. Content-addressed files are
+     * shared by reference, so no attachment bytes are copied. Files imported before content
+     * hashing are hashed once and adopted into the blob table first, so they are shared the
+     * same way from then on. The task, its reminders and every attachment row go in one
+     * transaction.
+     */
+    public void duplicate(Task source, Task copy, @Nullable OnTaskInsertedListener listener)
+    {
+        executorService.execute(() ->
+        {
+            List<Attachment> originals = attachmentDao.getAttachmentsForTaskSync(source.getId());
+            // Hashing reads the whole file, so it happens before the transaction.
+            Map<Integer, String[]> legacyHashes = new HashMap<>();
+            for (Attachment original : originals)
+            {
+                if (original.getContentHash() != null) continue;
+                try
+                {
+                    legacyHashes.put(original.getId(), FileUtils.hashStoredFile(new File(original.getFilePath())));
+                }
+                catch (IOException e)
+                {
+                    // Unreadable, so there is nothing to share; the copy goes without it.
+                }
+            }
+
+            database.runInTransaction(() ->
+            {
+                List<Integer> offsets = new ArrayList<>();
+                for (Reminder reminder : database.reminderDao().getRemindersForTaskSync(source.getId()))
+                {
+                    offsets.add(reminder.getOffsetMinutes());
+                }
+                if (offsets.isEmpty())
+                {
+                    offsets.add(copy.getNotificationMinutesBefore());
+                }
+                applyReminderOffsets(copy, offsets);
+
+                long taskId = taskDao.insert(copy);
+                copy.setId((int) taskId);
+                writeReminders(database, copy, offsets);
+
+                for (Attachment original : originals)
+                {
+                    Attachment current = attachmentDao.getAttachmentByIdSync(original.getId());
+                    if (current == null) continue;
+                    if (current.getContentHash() == null && !adoptLegacyFile(current, legacyHashes.get(current.getId())))
+                    {
+                        continue;
+                    }
+
+                    AttachmentBlob blob = blobDao.get(current.getContentHash());
+                    Attachment attachment = new Attachment(copy.getId(), current.getFileName(),
+                            blob != null ? blob.getFilePath() : current.getFilePath(),
+                            current.getFileType(), current.getFileSize());
+                    attachment.setContentHash(current.getContentHash());
+                    attachment.setMimeType(current.getMimeType());
+                    if (attachment.getFilePath().equals(current.getFilePath()))
+                    {
+                        attachment.setCompressedSize(current.getCompressedSize());
+                    }
+                    insertAttachmentLocked(attachment);
+                }
+            });
+
+            taskCache.put(copy);
+            reminderScheduler.onTaskChanged(copy.getId());
+            if (listener != null) {
+                listener.onTaskInserted(copy);
+            }
+        });
+    }
+
     public void update(Task task)
     {
-        executorService.execute(() -> taskDao.update(task));
+        update(task, null);
+    }
+
+    /**
+     * Updates a task and, when {@code reminderOffsets} is not null, replaces its reminders.
+     * With null offsets the existing reminders are kept and only their fire times move.
+     */
+    public void update(Task task, @Nullable List<Integer> reminderOffsets)
+    {
+        executorService.execute(() -> updateTaskSync(database, taskCache, reminderScheduler, task, reminderOffsets));
+    }
+
+    @WorkerThread
+    public static void updateTaskSync(Context context, Task task)
+    {
+        updateTaskSync(
+                AppDatabase.getInstance(context),
+                TaskCache.getInstance(context),
+                new ReminderScheduler(context),
+                task,
+                null
+        );
+    }
+
+    @WorkerThread
+    private static void updateTaskSync(AppDatabase database, TaskCache taskCache, ReminderScheduler reminderScheduler,
+                                       Task task, @Nullable List<Integer> reminderOffsets)
+    {
+        applyReminderOffsets(task, reminderOffsets);
+
+        database.runInTransaction(() ->
+        {
+            database.taskDao().update(task);
+            writeReminders(database, task, reminderOffsets);
+        });
+
+        taskCache.put(task);
+        reminderScheduler.onTaskChanged(task.getId());
+    }
+
+    /**
+     * Marks all given tasks completed and clears their reminders in one transaction.
+     *
+     * @return the number of tasks that were still open
+     */
+    @WorkerThread
+    public static int completeTasksSync(Context context, List<Integer> taskIds)
+    {
+        if (taskIds.isEmpty()) return 0;
+
+        AppDatabase database = AppDatabase.getInstance(context);
+        int completed = database.runInTransaction(() ->
+        {
+            int updated = database.taskDao().markCompleted(taskIds);
+            database.reminderDao().clearFireTimesForTasks(taskIds);
+            database.scheduledReminderDao().deleteByTaskIds(taskIds);
+            return updated;
+        });
+
+        new ReminderScheduler(context).rescheduleNext();
+        return completed;
+    }
+
+    private static void applyReminderOffsets(Task task, @Nullable List<Integer> reminderOffsets)
+    {
+        if (reminderOffsets != null && !reminderOffsets.isEmpty())
+        {
+            // The task keeps its earliest reminder so its notificationTime stays the head of its reminders.
+            task.setNotificationMinutesBefore(Collections.max(reminderOffsets));
+        }
+    }
+
+    private static void writeReminders(AppDatabase database, Task task, @Nullable List<Integer> reminderOffsets)
+    {
+        ReminderDao reminderDao = database.reminderDao();
+        if (reminderOffsets == null)
+        {
+            boolean active = task.isNotificationEnabled() && !task.isCompleted() && task.getCompletionTime() > 0;
+            reminderDao.refreshFireTimes(task.getId(), task.getCompletionTime(), active);
+            return;
+        }
+
+        List<Reminder> reminders = new ArrayList<>();
+        for (int offset : new LinkedHashSet<>(reminderOffsets))
+        {
+            reminders.add(new Reminder(task, offset));
+        }
+
+        reminderDao.deleteForTask(task.getId());
+        if (!reminders.isEmpty())
+        {
+            reminderDao.insertAll(reminders);
+        }
+    }
+
+    public LiveData<List<Reminder>> getRemindersForTask(int taskId)
+    {
+        return database.reminderDao().getRemindersForTask(taskId);
     }
 
     public void delete(Task task)
     {
         executorService.execute(() ->
         {
-            List<String> filePaths = attachmentDao.getFilePathsForTask(task.getId());
-            // TODO: Здесь нужно будет добавить удаление файлов из файловой системы
-
-            taskDao.delete(task);
+            boolean queued = database.runInTransaction(() ->
+            {
+                List<PendingFileDeletion> deletions = new ArrayList<>();
+                for (Attachment attachment : attachmentDao.getAttachmentsForTaskSync(task.getId()))
+                {
+                    deletions.add(releaseFile(attachment));
+                    recordUsage(attachment, -1);
+                }
+                if (!deletions.isEmpty())
+                {
+                    database.pendingFileDeletionDao().insertAll(deletions);
+                }
+                usageDao.delete(StorageUsage.SCOPE_TASK, String.valueOf(task.getId()));
+                taskDao.delete(task);
+                return !deletions.isEmpty();
+            });
+
+            if (queued)
+            {
+                fileReclaimer.schedule();
+            }
+            taskCache.remove(task.getId());
+            reminderScheduler.onTaskChanged(task.getId());
         });
     }
 
@@ -116,8 +378,7 @@ public class TaskRepository
     {
         executorService.execute(() ->
         {
-            long attachmentId = attachmentDao.insert(attachment);
-            attachment.setId((int) attachmentId);
+            database.runInTransaction(() -> insertAttachmentLocked(attachment));
 
             updateTaskAttachmentFlag(attachment.getTaskId());
 
@@ -128,16 +389,217 @@ public class TaskRepository
         });
     }
 
+    /**
+     * Inserts a batch of attachments, with their storage accounting, in one transaction.
+     */
+    public void insertAttachments(List<Attachment> attachments, @Nullable OnAttachmentsInsertedListener listener)
+    {
+        if (attachments.isEmpty()) return;
+
+        executorService.execute(() ->
+        {
+            database.runInTransaction(() ->
+            {
+                for (Attachment attachment : attachments)
+                {
+                    insertAttachmentLocked(attachment);
+                }
+            });
+
+            for (Attachment attachment : attachments)
+            {
+                updateTaskAttachmentFlag(attachment.getTaskId());
+            }
+            warmThumbnails(attachments);
+
+            if (listener != null)
+            {
+                listener.onAttachmentsInserted(attachments);
+            }
+        });
+    }
+
+    private void insertAttachmentLocked(Attachment attachment)
+    {
+        if (attachment.getContentHash() != null && attachment.getCompressedSize() == 0)
+        {
+            // Imports that hit an existing file may land on a copy already in cold storage;
+            // a raw copy is always exactly fileSize bytes long.
+            long onDisk = new File(attachment.getFilePath()).length();
+            if (onDisk > 0 && onDisk < attachment.getFileSize())
+            {
+                attachment.setCompressedSize(onDisk);
+            }
+        }
+
+        long attachmentId = attachmentDao.insert(attachment);
+        attachment.setId((int) attachmentId);
+        acquireFile(attachment);
+        recordUsage(attachment, 1);
+    }
+
+    private void warmThumbnails(List<Attachment> attachments)
+    {
+        for (Attachment attachment : attachments)
+        {
+            if ("image".equals(attachment.getFileType()))
+            {
+                thumbnailService.loadSync(attachment.getId(), attachment.getFilePath(), attachment.getFileType(),
+                        listThumbnailSize);
+            }
+        }
+    }
+
     public void deleteAttachment(Attachment attachment)
     {
         executorService.execute(() -> {
-            attachmentDao.delete(attachment);
-            // TODO: Удалить файл из файловой системы
+            boolean deleted = database.runInTransaction(() ->
+            {
+                if (attachmentDao.delete(attachment) == 0) return false;
+                database.pendingFileDeletionDao().insertAll(Collections.singletonList(releaseFile(attachment)));
+                recordUsage(attachment, -1);
+                return true;
+            });
+
+            if (deleted)
+            {
+                fileReclaimer.schedule();
+            }
 
             updateTaskAttachmentFlag(attachment.getTaskId());
         });
     }
 
+    /**
+     * Counts one more reference to the attachment's stored file. Must run inside a transaction.
+     */
+    private void acquireFile(Attachment attachment)
+    {
+        String contentHash = attachment.getContentHash();
+        boolean newFile = true;
+        if (contentHash != null)
+        {
+            newFile = blobDao.insert(new AttachmentBlob(contentHash, attachment.getFilePath(), getStoredSize(attachment))) != -1;
+            blobDao.addReference(contentHash);
+        }
+
+        if (newFile)
+        {
+            usageDao.adjust(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL, getStoredSize(attachment), 1);
+        }
+    }
+
+    /**
+     * Gives an attachment imported before content hashing its hash and a blob row, so its
+     * file can be shared by reference. Its stored bytes were counted when it was imported,
+     * so stored usage does not change. If the same content is already stored elsewhere the
+     * attachment keeps its own file, and copies share the existing one. Must run inside a
+     * transaction.
+     *
+     * @param hashes the result of {@link FileUtils#hashStoredFile} for its file
+     * @return false if its content hash could not be established
+     */
+    private boolean adoptLegacyFile(Attachment attachment, @Nullable String[] hashes)
+    {
+        if (hashes == null) return false;
+        // Cold storage may have compressed the file since it was hashed; the flag read in
+        // this transaction tells which of the two hashes is the content.
+        String contentHash = attachment.isCompressed() && hashes[1] != null ? hashes[1] : hashes[0];
+
+        if (blobDao.get(contentHash) == null)
+        {
+            blobDao.insert(new AttachmentBlob(contentHash, attachment.getFilePath(), getStoredSize(attachment)));
+            blobDao.addReference(contentHash);
+            attachmentDao.setContentHashIfMissing(attachment.getId(), contentHash);
+        }
+        attachment.setContentHash(contentHash);
+        return true;
+    }
+
+    private static long getStoredSize(Attachment attachment)
+    {
+        return attachment.isCompressed() ? attachment.getCompressedSize() : attachment.getFileSize();
+    }
+
+    /**
+     * Moves the per-task, per-type and total counters by one attachment. Must run inside
+     * the transaction that inserts or deletes it.
+     */
+    private void recordUsage(Attachment attachment, int sign)
+    {
+        long bytes = sign * attachment.getFileSize();
+        usageDao.adjust(StorageUsage.SCOPE_TASK, String.valueOf(attachment.getTaskId()), bytes, sign);
+        usageDao.adjust(StorageUsage.SCOPE_TYPE, StorageUsage.typeName(attachment.getFileType()), bytes, sign);
+        usageDao.adjust(StorageUsage.SCOPE_TOTAL, StorageUsage.NAME_ALL, bytes, sign);
+    }
+
+    /**
+     * Drops the attachment's claim on its stored file and describes the disk cleanup that
+     * follows. Must run inside the transaction that deletes the attachment.
+     */
+    private PendingFileDeletion releaseFile(Attachment attachment)
+    {
+        String contentHash = attachment.getContentHash();
+        String filePath = null;
+        long storedBytes = 0;
+        if (contentHash == null)
+        {
+            // Attachments imported before dedup storage own their file outright.
+            filePath = attachment.getFilePath();
+            storedBytes = getStoredSize(attachment);
+        }
+        else
+        {
+            AttachmentBlob released = releaseBlob(contentHash);
+            if (released != null)
+            {
+                filePath = released.getFilePath();
+                storedBytes = released.getSize();
+            }
+        }
+
+        if (filePath != null)
+        {
+            usageDao.adjust(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL, -storedBytes, -1);
+        }
+        return new PendingFileDeletion(attachment.getId(), filePath);
+    }
+
+    /**
+     * Drops one reference to a stored file. Must run inside a transaction.
+     *
+     * @return the blob once nothing references it any more, otherwise null
+     */
+    @Nullable
+    private AttachmentBlob releaseBlob(String contentHash)
+    {
+        AttachmentBlob blob = blobDao.get(contentHash);
+        if (blob == null) return null;
+
+        blobDao.releaseReference(contentHash);
+        return blobDao.deleteIfUnreferenced(contentHash) > 0 ? blob : null;
+    }
+
+    public LiveData<StorageUsage> getStoredUsage()
+    {
+        return usageDao.observe(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL);
+    }
+
+    /**
+     * Attachment storage split by task and by type, read from the running counters.
+     */
+    @WorkerThread
+    public static StorageBreakdown getStorageBreakdown(Context context)
+    {
+        StorageUsageDao usageDao = AppDatabase.getInstance(context).storageUsageDao();
+        return new StorageBreakdown(
+                usageDao.get(StorageUsage.SCOPE_TOTAL, StorageUsage.NAME_ALL),
+                usageDao.get(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL),
+                usageDao.getByScope(StorageUsage.SCOPE_TYPE),
+                usageDao.getByScope(StorageUsage.SCOPE_TASK)
+        );
+    }
+
     private void updateTaskAttachmentFlag(int taskId)
     {
         executorService.execute(() -> {
@@ -167,6 +629,11 @@ public class TaskRepository
         void onAttachmentInserted(Attachment attachment);
     }
 
+    public interface OnAttachmentsInsertedListener
+    {
+        void onAttachmentsInserted(List<Attachment> attachments);
+    }
+
     public interface OnTasksForNotificationListener
     {
         void onTasksForNotificationLoaded(List<Task> tasks);
@@ -0,0 +1,102 @@
+package com.example.todo.receivers;
+
+import android.content.BroadcastReceiver;
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide executor for broadcast receiver work.
+ *
+ * Every job holds its broadcast open with {@link BroadcastReceiver#goAsync()} and is
+ * finished exactly once: either when the work completes or when its deadline expires,
+ * whichever comes first. The system allows roughly 10 seconds for an async broadcast,
+ * so the default deadline stays well below that.
+ */
+public final class ReceiverExecutor {
+
+    private static final String TAG = "ReceiverExecutor";
+
+    public static final long DEFAULT_DEADLINE_MS = 8_000L;
+
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 32;
+
+    private static final ThreadPoolExecutor WORKERS = createWorkers();
+    private static final ScheduledExecutorService WATCHDOG =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "receiver-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private ReceiverExecutor() {
+    }
+
+    private static ThreadPoolExecutor createWorkers() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                POOL_SIZE,
+                POOL_SIZE,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread thread = new Thread(r, "receiver-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static void execute(BroadcastReceiver.PendingResult pendingResult, Runnable work) {
+        execute(pendingResult, work, DEFAULT_DEADLINE_MS);
+    }
+
+    public static void execute(BroadcastReceiver.PendingResult pendingResult, Runnable work, long deadlineMs) {
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true) && pendingResult != null) {
+                pendingResult.finish();
+            }
+        };
+
+        Future<?> future;
+        try {
+            future = WORKERS.submit(() -> {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    Log.e(TAG, "Receiver work failed", e);
+                } finally {
+                    finish.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Receiver queue is full, dropping broadcast work", e);
+            finish.run();
+            return;
+        }
+
+        ScheduledFuture<?> timeout = WATCHDOG.schedule(() -> {
+            if (!future.isDone()) {
+                Log.w(TAG, "Receiver work exceeded " + deadlineMs + " ms, cancelling");
+                future.cancel(true);
+                finish.run();
+            }
+        }, deadlineMs, TimeUnit.MILLISECONDS);
+
+        if (future.isDone()) {
+            timeout.cancel(false);
+        }
+    }
+}
@@ -7,34 +7,68 @@ import android.os.Handler;
 import android.os.Looper;
 import android.widget.Toast;
 
-import com.example.todo.data.database.AppDatabase;
 import com.example.todo.data.database.entities.Task;
+import com.example.todo.data.repository.TaskRepository;
 import com.example.todo.utils.NotificationHelper;
+import com.example.todo.utils.ReminderScheduler;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class TaskNotificationReceiver extends BroadcastReceiver {
 
     private void rescheduleNotifications(Context context) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            AppDatabase database = AppDatabase.getInstance(context);
-            long currentTime = System.currentTimeMillis();
-            List<Task> tasks = database.taskDao().getTasksForNotification(currentTime);
-
-            NotificationHelper notificationHelper = new NotificationHelper(context);
-            for (Task task : tasks) {
-                notificationHelper.scheduleTaskNotification(task);
+        ReceiverExecutor.execute(goAsync(), () -> {
+            ReminderScheduler reminderScheduler = new ReminderScheduler(context);
+            reminderScheduler.onBoot();
+            NotificationHelper.getInstance(context).scheduleDailyDigest();
+        });
+    }
+
+    private void showDailyDigest(Context context) {
+        ReceiverExecutor.execute(goAsync(), () -> {
+            NotificationHelper notificationHelper = NotificationHelper.getInstance(context);
+            notificationHelper.scheduleDailyDigest();
+            if (notificationHelper.isDailyDigestEnabled()) {
+                notificationHelper.showDailyDigest();
             }
         });
     }
 
+    private void dispatchDueReminders(Context context) {
+        ReceiverExecutor.execute(goAsync(), () -> {
+            ReminderScheduler reminderScheduler = new ReminderScheduler(context);
+            reminderScheduler.dispatchDue();
+            reminderScheduler.rescheduleNext();
+        });
+    }
+
     @Override
     public void onReceive(Context context, Intent intent)
     {
         String action = intent.getAction();
+
+        if (Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || "android.intent.action.QUICKBOOT_POWERON".equals(action)) {
+            rescheduleNotifications(context);
+            return;
+        }
+
+        if (ReminderScheduler.ACTION_REMINDER_ALARM.equals(action)) {
+            dispatchDueReminders(context);
+            return;
+        }
+
+        if (NotificationHelper.ACTION_DAILY_DIGEST.equals(action)) {
+            showDailyDigest(context);
+            return;
+        }
+
+        if (NotificationHelper.ACTION_COMPLETE_ALL.equals(action)) {
+            completeAllTasks(context, intent.getIntArrayExtra(NotificationHelper.EXTRA_TASK_IDS));
+            return;
+        }
+
         int taskId = intent.getIntExtra(NotificationHelper.EXTRA_TASK_ID, -1);
 
         if (taskId == -1) return;
@@ -54,17 +88,10 @@ public class TaskNotificationReceiver extends BroadcastReceiver {
                 case "ACTION_SNOOZE_TASK":
                     snoozeTask(context, taskId);
                     break;
-                case Intent.ACTION_BOOT_COMPLETED:
-                    rescheduleNotifications(context);
-                    break;
             }
         }
     }
 
-    private Task getTaskSync(AppDatabase database, int taskId) {
-        return database.taskDao().getTaskById(taskId).getValue();
-    }
-
     private void showTaskNotification(Context context, Intent intent) {
         int taskId = intent.getIntExtra(NotificationHelper.EXTRA_TASK_ID, -1);
         String title = intent.getStringExtra(NotificationHelper.EXTRA_TASK_TITLE);
@@ -72,34 +99,32 @@ public class TaskNotificationReceiver extends BroadcastReceiver {
 
         if (taskId == -1 || title == null) return;
 
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            AppDatabase database = AppDatabase.getInstance(context);
-            Task task = getTaskSync(database, taskId);
+        ReceiverExecutor.execute(goAsync(), () -> {
+            Task task = TaskRepository.getTaskSync(context, taskId);
 
             if (task != null && !task.isCompleted() && task.isNotificationEnabled()) {
-                NotificationHelper notificationHelper = new NotificationHelper(context);
+                NotificationHelper notificationHelper = NotificationHelper.getInstance(context);
                 notificationHelper.showTaskNotification(
                         taskId,
                         title,
                         description,
-                        task.getCompletionTime()
+                        task.getCompletionTime(),
+                        task.getCategory(),
+                        false
                 );
             }
         });
     }
 
     private void completeTask(Context context, int taskId) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            AppDatabase database = AppDatabase.getInstance(context);
-            Task task = getTaskSync(database, taskId);
+        ReceiverExecutor.execute(goAsync(), () -> {
+            Task task = TaskRepository.getTaskSync(context, taskId);
 
             if (task != null && !task.isCompleted()) {
                 task.setCompleted(true);
-                database.taskDao().update(task);
+                TaskRepository.updateTaskSync(context, task);
 
-                NotificationHelper notificationHelper = new NotificationHelper(context);
+                NotificationHelper notificationHelper = NotificationHelper.getInstance(context);
                 notificationHelper.cancelTaskNotification(taskId);
 
                 Handler mainHandler = new Handler(Looper.getMainLooper());
@@ -111,20 +136,42 @@ public class TaskNotificationReceiver extends BroadcastReceiver {
         });
     }
 
+    private void completeAllTasks(Context context, int[] taskIds) {
+        if (taskIds == null || taskIds.length == 0) return;
+
+        ReceiverExecutor.execute(goAsync(), () -> {
+            List<Integer> ids = new ArrayList<>(taskIds.length);
+            for (int id : taskIds) {
+                ids.add(id);
+            }
+
+            int completed = TaskRepository.completeTasksSync(context, ids);
+
+            NotificationHelper notificationHelper = NotificationHelper.getInstance(context);
+            for (int id : taskIds) {
+                notificationHelper.cancelTaskNotification(id);
+            }
+            notificationHelper.cancelSummaryNotification();
+
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            mainHandler.post(() -> {
+                Toast.makeText(context, completed + " tasks completed!",
+                        Toast.LENGTH_SHORT).show();
+            });
+        });
+    }
+
     private void snoozeTask(Context context, int taskId) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            AppDatabase database = AppDatabase.getInstance(context);
-            Task task = getTaskSync(database, taskId);
+        ReceiverExecutor.execute(goAsync(), () -> {
+            Task task = TaskRepository.getTaskSync(context, taskId);
 
             if (task != null && !task.isCompleted()) {
                 long newCompletionTime = task.getCompletionTime() + (15 * 60 * 1000L);
                 task.setCompletionTime(newCompletionTime);
-                database.taskDao().update(task);
+                TaskRepository.updateTaskSync(context, task);
 
-                NotificationHelper notificationHelper = new NotificationHelper(context);
+                NotificationHelper notificationHelper = NotificationHelper.getInstance(context);
                 notificationHelper.cancelTaskNotification(taskId);
-                notificationHelper.scheduleTaskNotification(task);
 
                 Handler mainHandler = new Handler(Looper.getMainLooper());
                 mainHandler.post(() -> {
@@ -0,0 +1,95 @@
+package com.example.todo.ui.gallery;
+
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.todo.R;
+import com.example.todo.ui.viewer.AttachmentOpener;
+import com.example.todo.utils.ThumbnailService;
+import com.example.todo.viewmodel.TaskViewModel;
+
+/**
+ * Grid of a task's attachments with image thumbnails.
+ */
+public class AttachmentGalleryActivity extends AppCompatActivity {
+
+    public static final String EXTRA_TASK_ID = "extra_task_id";
+    public static final String EXTRA_TITLE = "extra_title";
+
+    private static final int CELL_DP = 120;
+    private static final int MIN_COLUMNS = 2;
+    private static final int PREFETCH_ROWS = 2;
+
+    private RecyclerView recyclerViewAttachments;
+    private TextView tvEmpty;
+    private AttachmentGalleryAdapter adapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_attachment_gallery);
+
+        String title = getIntent().getStringExtra(EXTRA_TITLE);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle(title != null ? title : "Attachments");
+        }
+
+        recyclerViewAttachments = findViewById(R.id.recyclerViewAttachments);
+        tvEmpty = findViewById(R.id.tvEmpty);
+        setupRecyclerView();
+
+        int taskId = getIntent().getIntExtra(EXTRA_TASK_ID, -1);
+        TaskViewModel taskViewModel = new ViewModelProvider(this).get(TaskViewModel.class);
+        taskViewModel.getAttachmentsForTask(taskId).observe(this, attachments -> {
+            adapter.submitList(attachments);
+            tvEmpty.setVisibility(attachments == null || attachments.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+    }
+
+    private void setupRecyclerView() {
+        int screenWidth = getResources().getDisplayMetrics().widthPixels;
+        int cellPx = (int) (CELL_DP * getResources().getDisplayMetrics().density);
+        int columns = Math.max(MIN_COLUMNS, screenWidth / cellPx);
+        int cellSize = screenWidth / columns;
+
+        GridLayoutManager layoutManager = new GridLayoutManager(this, columns);
+        adapter = new AttachmentGalleryAdapter(ThumbnailService.getInstance(this), cellSize,
+                attachment -> AttachmentOpener.open(this, attachment));
+
+        recyclerViewAttachments.setLayoutManager(layoutManager);
+        recyclerViewAttachments.setHasFixedSize(true);
+        recyclerViewAttachments.setAdapter(adapter);
+        recyclerViewAttachments.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy == 0) return;
+                adapter.prefetch(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition(), dy > 0, columns * PREFETCH_ROWS);
+            }
+        });
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        adapter.cancelPrefetches();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.todo.ui.gallery;
+
+import android.graphics.Bitmap;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.todo.R;
+import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.utils.ThumbnailService;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Square tiles for a task's attachments. Image tiles show a thumbnail decoded at the cell
+ * size; the decode is cancelled as soon as its tile is recycled. {@link #prefetch} warms the
+ * thumbnail cache for the tiles about to scroll into view.
+ */
+public class AttachmentGalleryAdapter extends ListAdapter<Attachment, AttachmentGalleryAdapter.TileViewHolder> {
+
+    public interface OnAttachmentClickListener {
+        void onAttachmentClick(Attachment attachment);
+    }
+
+    private final ThumbnailService thumbnailService;
+    private final int cellSize;
+    private final OnAttachmentClickListener listener;
+    // Keyed by attachment id; only tiles outside the visible range are prefetched.
+    private final Map<Integer, ThumbnailService.Request> prefetches = new HashMap<>();
+
+    public AttachmentGalleryAdapter(ThumbnailService thumbnailService, int cellSize, OnAttachmentClickListener listener) {
+        super(DIFF_CALLBACK);
+        this.thumbnailService = thumbnailService;
+        this.cellSize = cellSize;
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    private static final DiffUtil.ItemCallback<Attachment> DIFF_CALLBACK = new DiffUtil.ItemCallback<Attachment>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Attachment oldItem, @NonNull Attachment newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Attachment oldItem, @NonNull Attachment newItem) {
+            return oldItem.getFilePath().equals(newItem.getFilePath()) &&
+                    oldItem.getFileName().equals(newItem.getFileName()) &&
+                    oldItem.isChecksumMismatch() == newItem.isChecksumMismatch();
+        }
+    };
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    @NonNull
+    @Override
+    public TileViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_attachment_tile, parent, false);
+        itemView.getLayoutParams().height = cellSize;
+        return new TileViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull TileViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull TileViewHolder holder) {
+        holder.cancelThumbnail();
+    }
+
+    /**
+     * Decodes thumbnails for the {@code count} tiles past the visible range in the direction
+     * of scrolling and drops prefetches that fell out of that window. A tile bound while its
+     * prefetch is still decoding joins that decode, so dropping the prefetch then only drops
+     * its callback.
+     */
+    public void prefetch(int firstVisible, int lastVisible, boolean forward, int count) {
+        if (firstVisible == RecyclerView.NO_POSITION) return;
+
+        int from = forward ? lastVisible + 1 : Math.max(0, firstVisible - count);
+        int to = forward ? Math.min(getItemCount(), lastVisible + 1 + count) : firstVisible;
+
+        Map<Integer, Attachment> window = new HashMap<>();
+        for (int position = from; position < to; position++) {
+            Attachment attachment = getItem(position);
+            if (isImage(attachment)) {
+                window.put(attachment.getId(), attachment);
+            }
+        }
+
+        Iterator<Map.Entry<Integer, ThumbnailService.Request>> iterator = prefetches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, ThumbnailService.Request> entry = iterator.next();
+            if (!window.containsKey(entry.getKey())) {
+                entry.getValue().cancel();
+                iterator.remove();
+            }
+        }
+
+        for (Attachment attachment : window.values()) {
+            int attachmentId = attachment.getId();
+            if (prefetches.containsKey(attachmentId) || thumbnailService.getCached(attachmentId, cellSize) != null) continue;
+
+            ThumbnailService.Request request = thumbnailService.load(attachmentId, attachment.getFilePath(),
+                    attachment.getFileType(), cellSize, (id, thumbnail) -> prefetches.remove(id));
+            if (!request.isCancelled()) {
+                prefetches.put(attachmentId, request);
+            }
+        }
+    }
+
+    public void cancelPrefetches() {
+        for (ThumbnailService.Request request : prefetches.values()) {
+            request.cancel();
+        }
+        prefetches.clear();
+    }
+
+    private static boolean isImage(Attachment attachment) {
+        return "image".equals(attachment.getFileType());
+    }
+
+    class TileViewHolder extends RecyclerView.ViewHolder {
+        private final ImageView ivThumbnail;
+        private final TextView tvFileName;
+        private ThumbnailService.Request thumbnailRequest;
+
+        TileViewHolder(@NonNull View itemView) {
+            super(itemView);
+            ivThumbnail = itemView.findViewById(R.id.ivThumbnail);
+            tvFileName = itemView.findViewById(R.id.tvFileName);
+        }
+
+        void bind(Attachment attachment) {
+            cancelThumbnail();
+            itemView.setOnClickListener(v -> listener.onAttachmentClick(attachment));
+
+            String label = attachment.getFileName();
+            if (attachment.isChecksumMismatch()) {
+                label += " - damaged";
+            }
+            tvFileName.setText(label);
+
+            if (!isImage(attachment)) {
+                ivThumbnail.setScaleType(ImageView.ScaleType.CENTER);
+                ivThumbnail.setImageResource(R.drawable.ic_attachment);
+                tvFileName.setVisibility(View.VISIBLE);
+                return;
+            }
+
+            ivThumbnail.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            tvFileName.setVisibility(View.GONE);
+            Bitmap cached = thumbnailService.getCached(attachment.getId(), cellSize);
+            if (cached != null) {
+                ivThumbnail.setImageBitmap(cached);
+                return;
+            }
+
+            ivThumbnail.setImageDrawable(null);
+            thumbnailRequest = thumbnailService.load(attachment.getId(), attachment.getFilePath(),
+                    attachment.getFileType(), cellSize, (attachmentId, thumbnail) -> {
+                        thumbnailRequest = null;
+                        if (thumbnail != null) {
+                            ivThumbnail.setImageBitmap(thumbnail);
+                        } else {
+                            ivThumbnail.setScaleType(ImageView.ScaleType.CENTER);
+                            ivThumbnail.setImageResource(R.drawable.ic_attachment);
+                            tvFileName.setVisibility(View.VISIBLE);
+                        }
+                    });
+        }
+
+        void cancelThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
+            }
+        }
+    }
+}
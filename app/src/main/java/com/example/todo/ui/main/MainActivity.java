@@ -18,9 +18,15 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.example.todo.R;
 import com.example.todo.data.database.entities.Task;
+import com.example.todo.ui.gallery.AttachmentGalleryActivity;
 import com.example.todo.ui.task.AddEditTaskActivity;
 import com.example.todo.ui.settings.SettingsActivity;
+import com.example.todo.ui.viewer.AttachmentOpener;
+import com.example.todo.utils.AttachmentReconciler;
+import com.example.todo.utils.ChecksumVerifier;
+import com.example.todo.utils.ColdStorage;
 import com.example.todo.utils.NotificationHelper;
+import com.example.todo.utils.ThumbnailService;
 import com.example.todo.viewmodel.TaskViewModel;
 
 public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTaskClickListener {
@@ -111,14 +117,49 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         for (int i = 0; i < attachments.size(); i++) {
             com.example.todo.data.database.entities.Attachment attachment = attachments.get(i);
             fileNames[i] = attachment.getFileName() + " (" + formatFileSize(attachment.getFileSize()) + ")";
+            if (attachment.isChecksumMismatch()) {
+                fileNames[i] += " - damaged";
+            }
         }
 
+        int thumbnailSize = ThumbnailService.getListThumbnailSize(this);
+        ThumbnailService thumbnailService = ThumbnailService.getInstance(this);
+
+        android.widget.ArrayAdapter<String> adapter = new android.widget.ArrayAdapter<String>(
+                this, android.R.layout.activity_list_item, android.R.id.text1, fileNames) {
+            @NonNull
+            @Override
+            public View getView(int position, View convertView, @NonNull android.view.ViewGroup parent) {
+                View view = super.getView(position, convertView, parent);
+                android.widget.ImageView icon = view.findViewById(android.R.id.icon);
+                com.example.todo.data.database.entities.Attachment attachment = attachments.get(position);
+
+                Object previous = icon.getTag();
+                if (previous instanceof ThumbnailService.Request) {
+                    ((ThumbnailService.Request) previous).cancel();
+                }
+                icon.setImageResource(android.R.drawable.ic_menu_agenda);
+                icon.setTag(null);
+
+                if ("image".equals(attachment.getFileType())) {
+                    icon.setTag(thumbnailService.load(attachment.getId(), attachment.getFilePath(),
+                            attachment.getFileType(), thumbnailSize, (attachmentId, thumbnail) -> {
+                                if (thumbnail != null) {
+                                    icon.setImageBitmap(thumbnail);
+                                }
+                            }));
+                }
+                return view;
+            }
+        };
+
         androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
         builder.setTitle("Attachments: " + task.getTitle());
-        builder.setItems(fileNames, (dialog, which) -> {
+        builder.setAdapter(adapter, (dialog, which) -> {
             com.example.todo.data.database.entities.Attachment selectedAttachment = attachments.get(which);
             openAttachment(selectedAttachment);
         });
+        builder.setNeutralButton("Gallery", (dialog, which) -> openGallery(task));
         builder.setNegativeButton("Close", null);
         builder.show();
     }
@@ -131,49 +172,16 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     }
 
     private void openAttachment(com.example.todo.data.database.entities.Attachment attachment) {
-        try {
-            Intent intent = new Intent(Intent.ACTION_VIEW);
-            java.io.File file = new java.io.File(attachment.getFilePath());
-
-            if (!file.exists()) {
-                Toast.makeText(this, "File not found: " + attachment.getFileName(), Toast.LENGTH_SHORT).show();
-                return;
-            }
-
-            android.net.Uri fileUri = androidx.core.content.FileProvider.getUriForFile(
-                    this,
-                    getPackageName() + ".fileprovider",
-                    file
-            );
-
-            intent.setDataAndType(fileUri, getMimeType(attachment.getFileName()));
-            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-
-            if (intent.resolveActivity(getPackageManager()) != null) {
-                startActivity(intent);
-            } else {
-                Toast.makeText(this, "No app found to open this file", Toast.LENGTH_SHORT).show();
-            }
-        } catch (Exception e) {
-            Toast.makeText(this, "Error opening file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+        AttachmentOpener.open(this, attachment);
     }
 
-    private String getMimeType(String fileName) {
-        String extension = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-        switch (extension) {
-            case "pdf": return "application/pdf";
-            case "doc": case "docx": return "application/msword";
-            case "txt": return "text/plain";
-            case "jpg": case "jpeg": return "image/jpeg";
-            case "png": return "image/png";
-            case "mp4": return "video/mp4";
-            case "mp3": return "audio/mpeg";
-            default: return "*/*";
-        }
+    private void openGallery(Task task) {
+        Intent intent = new Intent(this, AttachmentGalleryActivity.class);
+        intent.putExtra(AttachmentGalleryActivity.EXTRA_TASK_ID, task.getId());
+        intent.putExtra(AttachmentGalleryActivity.EXTRA_TITLE, task.getTitle());
+        startActivity(intent);
     }
 
-
     private void setupFab() {
         fabAddTask.setOnClickListener(v -> {
             Intent intent = new Intent(MainActivity.this, AddEditTaskActivity.class);
@@ -360,7 +368,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
 
         newTask.setCompletionTime(task.getCompletionTime() + (24 * 60 * 60 * 1000L));
 
-        taskViewModel.insertTask(newTask);
+        taskViewModel.duplicateTask(task, newTask);
         Toast.makeText(this, "Task duplicated", Toast.LENGTH_SHORT).show();
     }
 
@@ -399,7 +407,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     }
 
     private void checkNotificationPermissions() {
-        NotificationHelper notificationHelper = new NotificationHelper(this);
+        NotificationHelper notificationHelper = NotificationHelper.getInstance(this);
         if (!notificationHelper.areNotificationsEnabled()) {
             androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
             builder.setTitle("Permission for notifications");
@@ -446,6 +454,14 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        AttachmentReconciler.getInstance(this).scheduleSlice();
+        ColdStorage.getInstance(this).schedule();
+        ChecksumVerifier.getInstance(this).scheduleSlice();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
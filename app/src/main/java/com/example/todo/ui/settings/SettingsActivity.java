@@ -1,5 +1,6 @@
 package com.example.todo.ui.settings;
 
+import android.app.TimePickerDialog;
 import android.os.Bundle;
 import android.view.MenuItem;
 
@@ -11,6 +12,8 @@ import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.SwitchPreferenceCompat;
 
 import com.example.todo.R;
+import com.example.todo.data.database.entities.StorageUsage;
+import com.example.todo.utils.FileUtils;
 import com.example.todo.viewmodel.SettingsViewModel;
 
 public class SettingsActivity extends AppCompatActivity {
@@ -73,6 +76,65 @@ public class SettingsActivity extends AppCompatActivity {
                 });
             }
 
+            Preference batchWindowPref = findPreference(SettingsViewModel.PREF_REMINDER_BATCH_WINDOW);
+            if (batchWindowPref != null) {
+                updateBatchWindowSummary();
+                batchWindowPref.setOnPreferenceClickListener(preference -> {
+                    showBatchWindowDialog();
+                    return true;
+                });
+            }
+
+            SwitchPreferenceCompat quietHoursPref = findPreference(SettingsViewModel.PREF_QUIET_HOURS_ENABLED);
+            if (quietHoursPref != null) {
+                quietHoursPref.setOnPreferenceChangeListener((preference, newValue) -> {
+                    settingsViewModel.setQuietHoursEnabled((Boolean) newValue);
+                    return true;
+                });
+            }
+
+            Preference quietStartPref = findPreference(SettingsViewModel.PREF_QUIET_HOURS_START);
+            if (quietStartPref != null) {
+                quietStartPref.setOnPreferenceClickListener(preference -> {
+                    showQuietHoursTimeDialog(true);
+                    return true;
+                });
+            }
+
+            Preference quietEndPref = findPreference(SettingsViewModel.PREF_QUIET_HOURS_END);
+            if (quietEndPref != null) {
+                quietEndPref.setOnPreferenceClickListener(preference -> {
+                    showQuietHoursTimeDialog(false);
+                    return true;
+                });
+            }
+            updateQuietHoursSummary();
+
+            SwitchPreferenceCompat categoryChannelsPref = findPreference(SettingsViewModel.PREF_CATEGORY_CHANNELS);
+            if (categoryChannelsPref != null) {
+                categoryChannelsPref.setOnPreferenceChangeListener((preference, newValue) -> {
+                    settingsViewModel.setCategoryChannels((Boolean) newValue);
+                    return true;
+                });
+            }
+
+            SwitchPreferenceCompat dailyDigestPref = findPreference(SettingsViewModel.PREF_DAILY_DIGEST_ENABLED);
+            if (dailyDigestPref != null) {
+                dailyDigestPref.setOnPreferenceChangeListener((preference, newValue) -> {
+                    settingsViewModel.setDailyDigestEnabled((Boolean) newValue);
+                    return true;
+                });
+            }
+
+            Preference dailyDigestTimePref = findPreference(SettingsViewModel.PREF_DAILY_DIGEST_TIME);
+            if (dailyDigestTimePref != null) {
+                updateDailyDigestTimeSummary();
+                dailyDigestTimePref.setOnPreferenceClickListener(preference -> {
+                    showDailyDigestTimeDialog();
+                    return true;
+                });
+            }
+
             Preference defaultCategoryPref = findPreference(SettingsViewModel.PREF_DEFAULT_CATEGORY);
             if (defaultCategoryPref != null) {
                 updateDefaultCategorySummary();
@@ -91,6 +153,15 @@ public class SettingsActivity extends AppCompatActivity {
                 });
             }
 
+            Preference storageQuotaPref = findPreference(SettingsViewModel.PREF_STORAGE_QUOTA_MB);
+            if (storageQuotaPref != null) {
+                settingsViewModel.getStoredUsage().observe(this, usage -> updateStorageQuotaSummary());
+                storageQuotaPref.setOnPreferenceClickListener(preference -> {
+                    showStorageQuotaDialog();
+                    return true;
+                });
+            }
+
             Preference resetPref = findPreference("reset_settings");
             if (resetPref != null) {
                 resetPref.setOnPreferenceClickListener(preference -> {
@@ -117,6 +188,47 @@ public class SettingsActivity extends AppCompatActivity {
             }
         }
 
+        private void updateStorageQuotaSummary() {
+            Preference storageQuotaPref = findPreference(SettingsViewModel.PREF_STORAGE_QUOTA_MB);
+            if (storageQuotaPref != null) {
+                StorageUsage usage = settingsViewModel.getStoredUsage().getValue();
+                String used = FileUtils.formatFileSize(usage != null ? usage.getBytes() : 0);
+                int quotaMb = settingsViewModel.getCurrentStorageQuotaMb();
+                storageQuotaPref.setSummary(quotaMb == 0
+                        ? used + " used, no limit"
+                        : used + " used of " + getStorageQuotaText(quotaMb));
+            }
+        }
+
+        private void updateBatchWindowSummary() {
+            Preference batchWindowPref = findPreference(SettingsViewModel.PREF_REMINDER_BATCH_WINDOW);
+            if (batchWindowPref != null) {
+                int seconds = Math.min(60, settingsViewModel.getCurrentReminderBatchWindowSeconds());
+                batchWindowPref.setSummary(seconds == 0
+                        ? "Do not group reminders"
+                        : "Hold a reminder up to " + getBatchWindowText(seconds) + " to group it with the next");
+            }
+        }
+
+        private void updateQuietHoursSummary() {
+            Preference quietStartPref = findPreference(SettingsViewModel.PREF_QUIET_HOURS_START);
+            if (quietStartPref != null) {
+                quietStartPref.setSummary(getMinuteOfDayText(settingsViewModel.getCurrentQuietHoursStart()));
+            }
+
+            Preference quietEndPref = findPreference(SettingsViewModel.PREF_QUIET_HOURS_END);
+            if (quietEndPref != null) {
+                quietEndPref.setSummary(getMinuteOfDayText(settingsViewModel.getCurrentQuietHoursEnd()));
+            }
+        }
+
+        private void updateDailyDigestTimeSummary() {
+            Preference dailyDigestTimePref = findPreference(SettingsViewModel.PREF_DAILY_DIGEST_TIME);
+            if (dailyDigestTimePref != null) {
+                dailyDigestTimePref.setSummary(getMinuteOfDayText(settingsViewModel.getCurrentDailyDigestTime()));
+            }
+        }
+
         private void updateDefaultCategorySummary() {
             Preference defaultCategoryPref = findPreference(SettingsViewModel.PREF_DEFAULT_CATEGORY);
             if (defaultCategoryPref != null) {
@@ -159,6 +271,82 @@ public class SettingsActivity extends AppCompatActivity {
             builder.show();
         }
 
+        private void showStorageQuotaDialog() {
+            int[] values = {0, 100, 250, 500, 1024, 2048};
+            String[] options = new String[values.length];
+            int currentValue = settingsViewModel.getCurrentStorageQuotaMb();
+            int selectedIndex = 0;
+
+            for (int i = 0; i < values.length; i++) {
+                options[i] = values[i] == 0 ? "No limit" : getStorageQuotaText(values[i]);
+                if (values[i] == currentValue) {
+                    selectedIndex = i;
+                }
+            }
+
+            androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(requireContext());
+            builder.setTitle("Attachment storage limit");
+            builder.setSingleChoiceItems(options, selectedIndex, (dialog, which) -> {
+                settingsViewModel.setStorageQuotaMb(values[which]);
+                updateStorageQuotaSummary();
+                dialog.dismiss();
+            });
+            builder.setNegativeButton("Cancel", null);
+            builder.show();
+        }
+
+        private void showBatchWindowDialog() {
+            // Grouping only ever delays a reminder, so the longest hold is kept short.
+            String[] options = {"Off", "15 seconds", "30 seconds", "1 minute"};
+            int[] values = {0, 15, 30, 60};
+
+            int currentValue = settingsViewModel.getCurrentReminderBatchWindowSeconds();
+            int selectedIndex = 3;
+
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == currentValue) {
+                    selectedIndex = i;
+                    break;
+                }
+            }
+
+            androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(requireContext());
+            builder.setTitle("Reminder grouping");
+            builder.setSingleChoiceItems(options, selectedIndex, (dialog, which) -> {
+                settingsViewModel.setReminderBatchWindowSeconds(values[which]);
+                updateBatchWindowSummary();
+                dialog.dismiss();
+            });
+            builder.setNegativeButton("Cancel", null);
+            builder.show();
+        }
+
+        private void showQuietHoursTimeDialog(boolean start) {
+            int minuteOfDay = start
+                    ? settingsViewModel.getCurrentQuietHoursStart()
+                    : settingsViewModel.getCurrentQuietHoursEnd();
+
+            TimePickerDialog dialog = new TimePickerDialog(requireContext(), (view, hourOfDay, minute) -> {
+                if (start) {
+                    settingsViewModel.setQuietHoursStart(hourOfDay * 60 + minute);
+                } else {
+                    settingsViewModel.setQuietHoursEnd(hourOfDay * 60 + minute);
+                }
+                updateQuietHoursSummary();
+            }, minuteOfDay / 60, minuteOfDay % 60, true);
+            dialog.show();
+        }
+
+        private void showDailyDigestTimeDialog() {
+            int minuteOfDay = settingsViewModel.getCurrentDailyDigestTime();
+
+            TimePickerDialog dialog = new TimePickerDialog(requireContext(), (view, hourOfDay, minute) -> {
+                settingsViewModel.setDailyDigestTime(hourOfDay * 60 + minute);
+                updateDailyDigestTimeSummary();
+            }, minuteOfDay / 60, minuteOfDay % 60, true);
+            dialog.show();
+        }
+
         private void showDefaultCategoryDialog() {
             String[] categories = {"General", "Work", "Personal", "Education", "Shopping", "Health"};
             String currentCategory = settingsViewModel.getCurrentDefaultCategory();
@@ -187,7 +375,7 @@ public class SettingsActivity extends AppCompatActivity {
             String[] values = {"light", "dark", "system"};
             String currentTheme = settingsViewModel.getCurrentThemeMode();
 
-            int selectedIndex = 2;
+            int selectedIndex = 3;
             for (int i = 0; i < values.length; i++) {
                 if (values[i].equals(currentTheme)) {
                     selectedIndex = i;
@@ -213,6 +401,10 @@ public class SettingsActivity extends AppCompatActivity {
             builder.setPositiveButton("Reset", (dialog, which) -> {
                 settingsViewModel.resetToDefaults();
                 updateNotificationTimeSummary();
+                updateBatchWindowSummary();
+                updateStorageQuotaSummary();
+                updateQuietHoursSummary();
+                updateDailyDigestTimeSummary();
                 updateDefaultCategorySummary();
                 updateThemeSummary();
 
@@ -220,6 +412,21 @@ public class SettingsActivity extends AppCompatActivity {
                 if (hideCompletedPref != null) {
                     hideCompletedPref.setChecked(false);
                 }
+
+                SwitchPreferenceCompat quietHoursPref = findPreference(SettingsViewModel.PREF_QUIET_HOURS_ENABLED);
+                if (quietHoursPref != null) {
+                    quietHoursPref.setChecked(false);
+                }
+
+                SwitchPreferenceCompat dailyDigestPref = findPreference(SettingsViewModel.PREF_DAILY_DIGEST_ENABLED);
+                if (dailyDigestPref != null) {
+                    dailyDigestPref.setChecked(false);
+                }
+
+                SwitchPreferenceCompat categoryChannelsPref = findPreference(SettingsViewModel.PREF_CATEGORY_CHANNELS);
+                if (categoryChannelsPref != null) {
+                    categoryChannelsPref.setChecked(false);
+                }
             });
             builder.setNegativeButton("Cancel", null);
             builder.show();
@@ -250,6 +457,22 @@ public class SettingsActivity extends AppCompatActivity {
             }
         }
 
+        private String getStorageQuotaText(int megabytes) {
+            return FileUtils.formatFileSize(megabytes * 1024L * 1024L);
+        }
+
+        private String getBatchWindowText(int seconds) {
+            if (seconds < 60) {
+                return seconds + " seconds";
+            }
+            int minutes = seconds / 60;
+            return minutes + (minutes == 1 ? " minute" : " minutes");
+        }
+
+        private String getMinuteOfDayText(int minuteOfDay) {
+            return String.format(java.util.Locale.getDefault(), "%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+        }
+
         private String getThemeText(String theme) {
             switch (theme) {
                 case "light":
@@ -2,6 +2,7 @@ package com.example.todo.ui.task;
 
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
+import android.content.ClipData;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.Menu;
@@ -9,6 +10,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -23,6 +25,7 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.example.todo.R;
 import com.example.todo.data.database.entities.Task;
+import com.example.todo.ui.gallery.AttachmentGalleryActivity;
 import com.example.todo.utils.DateUtils;
 import com.example.todo.viewmodel.TaskViewModel;
 import com.example.todo.viewmodel.SettingsViewModel;
@@ -30,12 +33,10 @@ import com.example.todo.viewmodel.SettingsViewModel;
 import java.util.Calendar;
 import java.util.Objects;
 
-import android.database.Cursor;
 import android.net.Uri;
-import android.provider.OpenableColumns;
-import com.example.todo.utils.FileUtils;
+import com.example.todo.utils.AttachmentImporter;
 import com.example.todo.data.database.entities.Attachment;
-import java.io.File;
+import com.example.todo.data.database.entities.Reminder;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -58,10 +59,16 @@ public class AddEditTaskActivity extends AppCompatActivity {
     private boolean isEditMode = false;
     private Calendar selectedDateTime;
     private int selectedNotificationMinutes = 15;
+    private final List<Integer> selectedReminderOffsets = new ArrayList<>();
+    private final List<Integer> loadedReminderOffsets = new ArrayList<>();
 
     private List<String> temporaryAttachments = new ArrayList<>();
     private List<Attachment> currentAttachments = new ArrayList<>();
 
+    private AttachmentImporter attachmentImporter;
+    private AttachmentImporter.ImportTask currentImport;
+    private AlertDialog importProgressDialog;
+
     private final String[] categories = {
             "General", "Work", "Personal", "Education",
             "Shopping", "Health", "Finance", "Hobbies", "Travel"
@@ -169,25 +176,36 @@ public class AddEditTaskActivity extends AppCompatActivity {
 
     private void setupNotificationOptions() {
         chipGroupNotificationTime.setOnCheckedStateChangeListener((group, checkedIds) -> {
-            if (!checkedIds.isEmpty()) {
-                int checkedId = checkedIds.get(0);
-                if (checkedId == R.id.chip5min) {
-                    selectedNotificationMinutes = 5;
-                } else if (checkedId == R.id.chip15min) {
-                    selectedNotificationMinutes = 15;
-                } else if (checkedId == R.id.chip30min) {
-                    selectedNotificationMinutes = 30;
-                } else if (checkedId == R.id.chip1hour) {
-                    selectedNotificationMinutes = 60;
-                } else if (checkedId == R.id.chip1day) {
-                    selectedNotificationMinutes = 24 * 60;
+            selectedReminderOffsets.clear();
+            for (int checkedId : checkedIds) {
+                int minutes = getChipMinutes(checkedId);
+                if (minutes > 0) {
+                    selectedReminderOffsets.add(minutes);
                 }
             }
+            if (!selectedReminderOffsets.isEmpty()) {
+                selectedNotificationMinutes = java.util.Collections.max(selectedReminderOffsets);
+            }
         });
 
         chipGroupNotificationTime.check(R.id.chip15min);
     }
 
+    private int getChipMinutes(int chipId) {
+        if (chipId == R.id.chip5min) {
+            return 5;
+        } else if (chipId == R.id.chip15min) {
+            return 15;
+        } else if (chipId == R.id.chip30min) {
+            return 30;
+        } else if (chipId == R.id.chip1hour) {
+            return 60;
+        } else if (chipId == R.id.chip1day) {
+            return 24 * 60;
+        }
+        return -1;
+    }
+
     private void loadTask(int taskId) {
         taskViewModel.getTaskById(taskId).observe(this, task -> {
             if (task != null) {
@@ -211,8 +229,20 @@ public class AddEditTaskActivity extends AppCompatActivity {
 
         switchNotification.setChecked(currentTask.isNotificationEnabled());
         selectedNotificationMinutes = currentTask.getNotificationMinutesBefore();
+        chipGroupNotificationTime.clearCheck();
         selectNotificationChip();
 
+        taskViewModel.getRemindersForTask(currentTask.getId()).observe(this, reminders -> {
+            if (reminders != null && !reminders.isEmpty()) {
+                loadedReminderOffsets.clear();
+                chipGroupNotificationTime.clearCheck();
+                for (Reminder reminder : reminders) {
+                    loadedReminderOffsets.add(reminder.getOffsetMinutes());
+                    selectNotificationChip(reminder.getOffsetMinutes());
+                }
+            }
+        });
+
         chipGroupNotificationTime.setVisibility(
                 currentTask.isNotificationEnabled() ? View.VISIBLE : View.GONE);
 
@@ -225,8 +255,12 @@ public class AddEditTaskActivity extends AppCompatActivity {
     }
 
     private void selectNotificationChip() {
+        selectNotificationChip(selectedNotificationMinutes);
+    }
+
+    private void selectNotificationChip(int minutes) {
         int chipId;
-        switch (selectedNotificationMinutes) {
+        switch (minutes) {
             case 5:
                 chipId = R.id.chip5min;
                 break;
@@ -324,9 +358,10 @@ public class AddEditTaskActivity extends AppCompatActivity {
         Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
         intent.setType("*/*");
         intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
 
         try {
-            startActivityForResult(Intent.createChooser(intent, "Выберите файл"), 2001);
+            startActivityForResult(Intent.createChooser(intent, "Выберите файлы"), 2001);
         } catch (Exception e) {
             Toast.makeText(this, "Не удалось открыть файловый менеджер", Toast.LENGTH_SHORT).show();
         }
@@ -337,76 +372,133 @@ public class AddEditTaskActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == 2001 && resultCode == RESULT_OK && data != null) {
-            Uri fileUri = data.getData();
-            if (fileUri != null) {
-                handleSelectedFile(fileUri);
+            List<Uri> fileUris = new ArrayList<>();
+            ClipData clipData = data.getClipData();
+            if (clipData != null) {
+                for (int i = 0; i < clipData.getItemCount(); i++) {
+                    Uri uri = clipData.getItemAt(i).getUri();
+                    if (uri != null) {
+                        fileUris.add(uri);
+                    }
+                }
+            } else if (data.getData() != null) {
+                fileUris.add(data.getData());
+            }
+
+            if (!fileUris.isEmpty()) {
+                handleSelectedFiles(fileUris);
             }
         }
     }
 
-    private void handleSelectedFile(Uri fileUri) {
-        try {
-            String fileName = getFileNameFromUri(fileUri);
-            String uniqueFileName = FileUtils.generateUniqueFileName(fileName);
-            File copiedFile = FileUtils.copyFileToAppDirectory(this, fileUri, uniqueFileName);
+    private void handleSelectedFiles(List<Uri> fileUris) {
+        if (currentImport != null) {
+            currentImport.cancel();
+        }
+        if (attachmentImporter == null) {
+            attachmentImporter = new AttachmentImporter(this);
+        }
 
-            long fileSize = copiedFile.length();
-            String fileType = FileUtils.getFileType(fileName);
+        ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setIndeterminate(true);
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        progressBar.setPadding(padding, padding / 2, padding, 0);
+
+        int fileCount = fileUris.size();
+        importProgressDialog = new AlertDialog.Builder(this)
+                .setTitle(fileCount == 1 ? "Attaching file" : "Attaching files (0/" + fileCount + ")")
+                .setView(progressBar)
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (dialog, which) -> {
+                    if (currentImport != null) {
+                        currentImport.cancel();
+                    }
+                })
+                .show();
+
+        currentImport = attachmentImporter.importFiles(fileUris, new AttachmentImporter.BatchListener() {
+            @Override
+            public void onProgress(int finishedFiles, int totalFiles, long copiedBytes, long totalBytes) {
+                if (importProgressDialog != null && totalFiles > 1) {
+                    importProgressDialog.setTitle("Attaching files (" + finishedFiles + "/" + totalFiles + ")");
+                }
+                if (totalBytes > 0) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setMax(1000);
+                    progressBar.setProgress((int) (copiedBytes * 1000 / totalBytes));
+                }
+            }
 
-            if (!FileUtils.isFileSizeValid(fileSize, fileType)) {
-                copiedFile.delete();
-                Toast.makeText(this, "Файл слишком большой", Toast.LENGTH_SHORT).show();
-                return;
+            @Override
+            public void onComplete(List<AttachmentImporter.Result> results, List<Exception> errors) {
+                finishImport();
+                onFilesImported(results);
+                showImportErrors(errors);
             }
 
-            if (FileUtils.isImageFile(fileName)) {
-                copiedFile = FileUtils.compressImageIfNeeded(copiedFile);
-                fileSize = copiedFile.length();
+            @Override
+            public void onCancelled() {
+                finishImport();
             }
+        });
+    }
+
+    private void finishImport() {
+        currentImport = null;
+        if (importProgressDialog != null) {
+            importProgressDialog.dismiss();
+            importProgressDialog = null;
+        }
+    }
+
+    private void onFilesImported(List<AttachmentImporter.Result> results) {
+        if (results.isEmpty()) return;
 
+        List<Attachment> attachments = new ArrayList<>();
+        boolean nearQuota = false;
+        for (AttachmentImporter.Result result : results) {
+            nearQuota |= result.nearQuota;
             if (isEditMode && currentTask != null) {
                 Attachment attachment = new Attachment();
                 attachment.setTaskId(currentTask.getId());
-                attachment.setFileName(fileName);
-                attachment.setFilePath(copiedFile.getAbsolutePath());
-                attachment.setFileSize(fileSize);
-                attachment.setFileType(fileType);
-
-                currentAttachments.add(attachment);
-
-                taskViewModel.insertAttachment(attachment);
+                attachment.setFileName(result.fileName);
+                attachment.setFilePath(result.file.getAbsolutePath());
+                attachment.setFileSize(result.fileSize);
+                attachment.setFileType(result.fileType);
+                attachment.setMimeType(result.mimeType);
+                attachment.setContentHash(result.contentHash);
+                attachments.add(attachment);
             } else {
-                String attachmentData = copiedFile.getAbsolutePath() + "|" + fileName + "|" + fileSize + "|" + fileType;
+                String attachmentData = result.file.getAbsolutePath() + "|" + result.fileName + "|" + result.fileSize + "|" + result.fileType + "|" + result.contentHash + "|" + result.mimeType;
                 temporaryAttachments.add(attachmentData);
             }
+        }
 
-            Toast.makeText(this, "Файл прикреплен: " + fileName, Toast.LENGTH_SHORT).show();
+        if (!attachments.isEmpty()) {
+            currentAttachments.addAll(attachments);
+            taskViewModel.insertAttachments(attachments);
+        }
 
-        } catch (Exception e) {
-            Toast.makeText(this, "Ошибка при прикреплении файла: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        String message = results.size() == 1
+                ? "Файл прикреплен: " + results.get(0).fileName
+                : "Прикреплено файлов: " + results.size();
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+        if (nearQuota) {
+            Toast.makeText(this, "Место для вложений почти закончилось", Toast.LENGTH_LONG).show();
         }
     }
 
-    private String getFileNameFromUri(Uri uri) {
-        String fileName = "unknown_file";
-        if (uri.getScheme().equals("content")) {
-            Cursor cursor = getContentResolver().query(uri, null, null, null, null);
-            if (cursor != null) {
-                try {
-                    if (cursor.moveToFirst()) {
-                        int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
-                        if (nameIndex >= 0) {
-                            fileName = cursor.getString(nameIndex);
-                        }
-                    }
-                } finally {
-                    cursor.close();
-                }
-            }
-        } else {
-            fileName = uri.getLastPathSegment();
+    private void showImportErrors(List<Exception> errors) {
+        if (errors.isEmpty()) return;
+
+        Exception error = errors.get(0);
+        String reason = error instanceof AttachmentImporter.FileTooLargeException
+                ? "Файл слишком большой"
+                : "Ошибка при прикреплении файла: " + error.getMessage();
+        if (errors.size() > 1) {
+            reason = "Не удалось прикрепить файлов: " + errors.size() + ". " + reason;
         }
-        return fileName != null ? fileName : "unknown_file";
+        Toast.makeText(this, reason, Toast.LENGTH_LONG).show();
     }
 
     private void showAttachmentsList(List<Attachment> attachments) {
@@ -421,6 +513,12 @@ public class AddEditTaskActivity extends AppCompatActivity {
             Attachment selectedAttachment = attachments.get(which);
             Toast.makeText(this, "Файл: " + selectedAttachment.getFileName(), Toast.LENGTH_SHORT).show();
         });
+        builder.setNeutralButton("Галерея", (dialog, which) -> {
+            Intent intent = new Intent(this, AttachmentGalleryActivity.class);
+            intent.putExtra(AttachmentGalleryActivity.EXTRA_TASK_ID, currentTask.getId());
+            intent.putExtra(AttachmentGalleryActivity.EXTRA_TITLE, currentTask.getTitle());
+            startActivity(intent);
+        });
         builder.setPositiveButton("Закрыть", null);
         builder.show();
     }
@@ -512,7 +610,7 @@ public class AddEditTaskActivity extends AppCompatActivity {
             currentTask.setNotificationEnabled(notificationEnabled);
             currentTask.setNotificationMinutesBefore(selectedNotificationMinutes);
 
-            taskViewModel.updateTask(currentTask);
+            taskViewModel.updateTask(currentTask, getReminderOffsets());
 
         } else {
             Task newTask = new Task();
@@ -523,7 +621,7 @@ public class AddEditTaskActivity extends AppCompatActivity {
             newTask.setNotificationEnabled(notificationEnabled);
             newTask.setNotificationMinutesBefore(selectedNotificationMinutes);
 
-            taskViewModel.insertTaskWithAttachments(newTask, temporaryAttachments);
+            taskViewModel.insertTaskWithAttachments(newTask, temporaryAttachments, getReminderOffsets());
         }
 
         setResult(RESULT_OK);
@@ -531,6 +629,13 @@ public class AddEditTaskActivity extends AppCompatActivity {
     }
 
 
+    private List<Integer> getReminderOffsets() {
+        if (selectedReminderOffsets.isEmpty()) {
+            return java.util.Collections.singletonList(selectedNotificationMinutes);
+        }
+        return new ArrayList<>(selectedReminderOffsets);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_add_edit_task, menu);
@@ -578,6 +683,15 @@ public class AddEditTaskActivity extends AppCompatActivity {
         builder.show();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (currentImport != null) {
+            currentImport.cancel();
+        }
+        finishImport();
+        super.onDestroy();
+    }
+
     @Override
     public void onBackPressed() {
         if (hasUnsavedChanges()) {
@@ -606,7 +720,9 @@ public class AddEditTaskActivity extends AppCompatActivity {
                     !currentCategory.equals(currentTask.getCategory()) ||
                     selectedDateTime.getTimeInMillis() != currentTask.getCompletionTime() ||
                     switchNotification.isChecked() != currentTask.isNotificationEnabled() ||
-                    selectedNotificationMinutes != currentTask.getNotificationMinutesBefore();
+                    selectedNotificationMinutes != currentTask.getNotificationMinutesBefore() ||
+                    (!loadedReminderOffsets.isEmpty() &&
+                            !new java.util.HashSet<>(loadedReminderOffsets).equals(new java.util.HashSet<>(selectedReminderOffsets)));
         } else {
             return !currentTitle.isEmpty() || !currentDescription.isEmpty() || !currentCategory.isEmpty();
         }
@@ -0,0 +1,65 @@
+package com.example.todo.ui.viewer;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.widget.Toast;
+
+import androidx.core.content.FileProvider;
+
+import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.utils.ColdStorage;
+import com.example.todo.utils.FileUtils;
+
+import java.io.File;
+
+/**
+ * Opens an attachment: text in {@link TextViewerActivity}, anything else in whichever app
+ * handles its MIME type. Files in cold storage are inflated first.
+ */
+public final class AttachmentOpener {
+
+    private AttachmentOpener() {
+    }
+
+    public static void open(Activity activity, Attachment attachment) {
+        ColdStorage.getInstance(activity).open(attachment, file -> {
+            if (activity.isFinishing() || activity.isDestroyed()) return;
+
+            if (file == null) {
+                Toast.makeText(activity, "File not found: " + attachment.getFileName(), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            view(activity, attachment, file);
+        });
+    }
+
+    private static void view(Activity activity, Attachment attachment, File file) {
+        String mimeType = attachment.getMimeType() != null
+                ? attachment.getMimeType()
+                : FileUtils.getMimeType(attachment.getFileName());
+        if (mimeType.startsWith("text/")) {
+            Intent intent = new Intent(activity, TextViewerActivity.class);
+            intent.putExtra(TextViewerActivity.EXTRA_FILE_PATH, file.getAbsolutePath());
+            intent.putExtra(TextViewerActivity.EXTRA_TITLE, attachment.getFileName());
+            activity.startActivity(intent);
+            return;
+        }
+
+        try {
+            Intent intent = new Intent(Intent.ACTION_VIEW);
+            Uri fileUri = FileProvider.getUriForFile(activity, activity.getPackageName() + ".fileprovider", file);
+
+            intent.setDataAndType(fileUri, mimeType);
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+            if (intent.resolveActivity(activity.getPackageManager()) != null) {
+                activity.startActivity(intent);
+            } else {
+                Toast.makeText(activity, "No app found to open this file", Toast.LENGTH_SHORT).show();
+            }
+        } catch (Exception e) {
+            Toast.makeText(activity, "Error opening file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.todo.ui.viewer;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.util.LruCache;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.todo.R;
+import com.example.todo.utils.PagedTextFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shows a text attachment in-app. The file is memory-mapped and shown one page per list
+ * item, so only the pages on screen, plus a few recently shown ones, are ever decoded.
+ * Search runs over the mapped bytes in the background as the query is typed.
+ */
+public class TextViewerActivity extends AppCompatActivity {
+
+    public static final String EXTRA_FILE_PATH = "extra_file_path";
+    public static final String EXTRA_TITLE = "extra_title";
+
+    private static final int CACHED_PAGES = 8;
+    private static final long SEARCH_DELAY_MS = 250;
+    private static final int HIGHLIGHT_COLOR = 0x80FFC107;
+
+    private PagedTextFile textFile;
+    private RecyclerView recyclerViewPages;
+    private LinearLayoutManager layoutManager;
+    private ProgressBar progressSearch;
+    private PageAdapter adapter;
+
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pendingSearch = () -> search(getFirstVisibleOffset());
+    private SearchRun currentSearch;
+    private String query = "";
+    private int matchOffset = -1;
+
+    private static class SearchRun implements PagedTextFile.Cancellation {
+        volatile boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_text_viewer);
+
+        String title = getIntent().getStringExtra(EXTRA_TITLE);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle(title != null ? title : "Text");
+        }
+
+        String filePath = getIntent().getStringExtra(EXTRA_FILE_PATH);
+        try {
+            textFile = new PagedTextFile(new File(filePath));
+        } catch (IOException | RuntimeException e) {
+            Toast.makeText(this, "Cannot open file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        recyclerViewPages = findViewById(R.id.recyclerViewPages);
+        progressSearch = findViewById(R.id.progressSearch);
+        layoutManager = new LinearLayoutManager(this);
+        adapter = new PageAdapter();
+        recyclerViewPages.setLayoutManager(layoutManager);
+        recyclerViewPages.setAdapter(adapter);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_text_viewer, menu);
+
+        SearchView searchView = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        if (searchView != null) {
+            searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+                @Override
+                public boolean onQueryTextSubmit(String text) {
+                    query = text;
+                    findNext();
+                    return true;
+                }
+
+                @Override
+                public boolean onQueryTextChange(String text) {
+                    query = text;
+                    mainHandler.removeCallbacks(pendingSearch);
+                    mainHandler.postDelayed(pendingSearch, SEARCH_DELAY_MS);
+                    return true;
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        } else if (item.getItemId() == R.id.action_find_next) {
+            findNext();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void findNext() {
+        mainHandler.removeCallbacks(pendingSearch);
+        search(matchOffset >= 0 ? matchOffset + 1 : getFirstVisibleOffset());
+    }
+
+    private int getFirstVisibleOffset() {
+        int page = layoutManager.findFirstVisibleItemPosition();
+        return page == RecyclerView.NO_POSITION ? 0 : textFile.getPageStart(page);
+    }
+
+    private void search(int from) {
+        if (textFile == null) return;
+        cancelSearch();
+        if (query.isEmpty()) {
+            showMatch(-1, 0);
+            return;
+        }
+
+        SearchRun run = new SearchRun();
+        currentSearch = run;
+        String text = query;
+        progressSearch.setVisibility(View.VISIBLE);
+        searchExecutor.execute(() -> {
+            int match = textFile.find(text, from, run);
+            mainHandler.post(() -> {
+                if (run.cancelled) return;
+                currentSearch = null;
+                progressSearch.setVisibility(View.GONE);
+                if (match == -1) {
+                    Toast.makeText(this, "No matches for \"" + text + "\"", Toast.LENGTH_SHORT).show();
+                }
+                showMatch(match, text.getBytes(StandardCharsets.UTF_8).length);
+            });
+        });
+    }
+
+    private void cancelSearch() {
+        if (currentSearch != null) {
+            currentSearch.cancelled = true;
+            currentSearch = null;
+        }
+        progressSearch.setVisibility(View.GONE);
+    }
+
+    private void showMatch(int offset, int length) {
+        matchOffset = offset;
+        int previousPage = adapter.highlightPage;
+        if (offset < 0) {
+            adapter.highlightPage = -1;
+            if (previousPage >= 0) {
+                adapter.notifyItemChanged(previousPage);
+            }
+            return;
+        }
+
+        int page = textFile.getPageOf(offset);
+        int pageStart = textFile.getPageStart(page);
+        adapter.highlightPage = page;
+        adapter.highlightStart = textFile.decode(pageStart, offset).length();
+        adapter.highlightEnd = adapter.highlightStart + textFile.decode(offset, offset + length).length();
+        if (previousPage >= 0 && previousPage != page) {
+            adapter.notifyItemChanged(previousPage);
+        }
+        adapter.notifyItemChanged(page);
+
+        layoutManager.scrollToPositionWithOffset(page, 0);
+        // Once the page is laid out, bring the matching line itself to the top.
+        recyclerViewPages.post(() -> {
+            RecyclerView.ViewHolder holder = recyclerViewPages.findViewHolderForAdapterPosition(page);
+            if (holder == null || matchOffset != offset) return;
+
+            Layout layout = ((PageViewHolder) holder).tvPage.getLayout();
+            if (layout == null) return;
+            int line = layout.getLineForOffset(adapter.highlightStart);
+            layoutManager.scrollToPositionWithOffset(page, -layout.getLineTop(Math.max(0, line - 1)));
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacks(pendingSearch);
+        if (currentSearch != null) {
+            currentSearch.cancelled = true;
+        }
+        searchExecutor.shutdownNow();
+        if (textFile != null) {
+            try {
+                textFile.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static class PageViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvPage;
+
+        PageViewHolder(View itemView) {
+            super(itemView);
+            tvPage = itemView.findViewById(R.id.tvPage);
+        }
+    }
+
+    private class PageAdapter extends RecyclerView.Adapter<PageViewHolder> {
+        private final LruCache<Integer, String> pages = new LruCache<>(CACHED_PAGES);
+        int highlightPage = -1;
+        int highlightStart;
+        int highlightEnd;
+
+        @NonNull
+        @Override
+        public PageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_text_page, parent, false);
+            return new PageViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull PageViewHolder holder, int position) {
+            String text = pages.get(position);
+            if (text == null) {
+                text = textFile.decodePage(position);
+                pages.put(position, text);
+            }
+
+            if (position == highlightPage && highlightEnd <= text.length()) {
+                SpannableString highlighted = new SpannableString(text);
+                highlighted.setSpan(new BackgroundColorSpan(HIGHLIGHT_COLOR), highlightStart, highlightEnd,
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                holder.tvPage.setText(highlighted);
+            } else {
+                holder.tvPage.setText(text);
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return textFile.getPageCount();
+        }
+    }
+}
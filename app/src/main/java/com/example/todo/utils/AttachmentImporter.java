@@ -0,0 +1,493 @@
+package com.example.todo.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.provider.OpenableColumns;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Copies picked files into the attachments directory off the main thread.
+ *
+ * The size reported by the provider is checked before any byte is copied. Data is
+ * streamed through file channels with a large direct buffer into a ".part" file and
+ * hashed in the same pass, while its first bytes decide the file type. Oversized images
+ * are re-encoded and hashed again.
+ *
+ * The finished file is stored under the hash of its bytes, so a file that is already
+ * stored is dropped instead of kept twice; otherwise the part file is renamed into place.
+ * The storage quota is checked once the hash is known, so re-importing content that is
+ * already stored is never rejected. A cancelled or failed import never leaves a partial
+ * attachment.
+ *
+ * Several files can be imported as one batch with a single aggregate progress report.
+ * Callbacks are delivered on the main thread.
+ */
+public class AttachmentImporter {
+
+    public interface Listener {
+        void onProgress(long copiedBytes, long totalBytes);
+
+        void onComplete(Result result);
+
+        void onError(Exception error);
+
+        default void onCancelled() {
+        }
+    }
+
+    public static class Result {
+        public final File file;
+        public final String fileName;
+        public final long fileSize;
+        public final String fileType;
+        public final String mimeType;
+        public final String contentHash;
+        public final boolean deduplicated;
+        public final boolean nearQuota;
+
+        Result(File file, String fileName, long fileSize, String fileType, String mimeType, String contentHash,
+               boolean deduplicated, boolean nearQuota) {
+            this.file = file;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+            this.fileType = fileType;
+            this.mimeType = mimeType;
+            this.contentHash = contentHash;
+            this.deduplicated = deduplicated;
+            this.nearQuota = nearQuota;
+        }
+    }
+
+    public static class FileTooLargeException extends IOException {
+        public FileTooLargeException(long size, long limit) {
+            super("File is " + FileUtils.formatFileSize(size) + ", the limit is " + FileUtils.formatFileSize(limit));
+        }
+    }
+
+    public interface BatchListener {
+        void onProgress(int finishedFiles, int totalFiles, long copiedBytes, long totalBytes);
+
+        /**
+         * @param results imported files in the order they were requested, failed ones left out
+         * @param errors  one entry per file that failed
+         */
+        void onComplete(List<Result> results, List<Exception> errors);
+
+        default void onCancelled() {
+        }
+    }
+
+    /**
+     * Handle for a running import of one file or a batch.
+     */
+    public static class ImportTask {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final AtomicBoolean delivered = new AtomicBoolean(false);
+        private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        private volatile Runnable onCancel;
+
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+                // Jobs cancelled before they started never report back themselves.
+                Runnable callback = onCancel;
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        }
+
+        /**
+         * @return true for the first caller only, so the listener hears exactly one outcome
+         */
+        boolean markDelivered() {
+            return delivered.compareAndSet(false, true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    private interface ProgressSink {
+        void onBytes(long copied, long total);
+    }
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 100;
+    private static final String PART_SUFFIX = ".part";
+    private static final int MAX_PARALLEL_IMPORTS = 3;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_PARALLEL_IMPORTS);
+
+    private final Context context;
+    private final StorageQuota storageQuota;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public AttachmentImporter(Context context) {
+        this.context = context.getApplicationContext();
+        this.storageQuota = new StorageQuota(this.context);
+    }
+
+    public ImportTask importFile(Uri sourceUri, Listener listener) {
+        ImportTask task = new ImportTask();
+        task.onCancel = () -> {
+            if (task.markDelivered()) {
+                mainHandler.post(listener::onCancelled);
+            }
+        };
+        task.futures.add(EXECUTOR.submit(() -> runImport(sourceUri, task, listener)));
+        return task;
+    }
+
+    private void runImport(Uri sourceUri, ImportTask task, Listener listener) {
+        try {
+            ProgressReporter progress = new ProgressReporter(listener);
+            Result result = importSync(sourceUri, task, progress, new AtomicLong());
+            if (task.markDelivered()) {
+                mainHandler.post(() -> listener.onComplete(result));
+            }
+        } catch (Exception e) {
+            if (task.markDelivered()) {
+                mainHandler.post(() -> listener.onError(e));
+            }
+        }
+    }
+
+    /**
+     * Imports several files, at most MAX_PARALLEL_IMPORTS at a time. Progress is reported for
+     * the batch as a whole and the listener hears back once, after every file has finished.
+     */
+    public ImportTask importFiles(List<Uri> sourceUris, BatchListener listener) {
+        ImportTask task = new ImportTask();
+        int count = sourceUris.size();
+        Result[] results = new Result[count];
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        AtomicInteger remaining = new AtomicInteger(count);
+        BatchProgress progress = new BatchProgress(count, listener);
+        // Bytes accepted by this batch but not yet counted in the database.
+        AtomicLong pendingBytes = new AtomicLong();
+        task.onCancel = () -> {
+            if (task.markDelivered()) {
+                mainHandler.post(listener::onCancelled);
+            }
+        };
+
+        if (count == 0) {
+            mainHandler.post(() -> listener.onComplete(new ArrayList<>(), errors));
+            return task;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            Uri sourceUri = sourceUris.get(i);
+            task.futures.add(EXECUTOR.submit(() -> {
+                try {
+                    results[index] = importSync(sourceUri, task, (copied, total) -> progress.onBytes(index, copied, total), pendingBytes);
+                } catch (Exception e) {
+                    if (!task.isCancelled()) {
+                        errors.add(e);
+                    }
+                } finally {
+                    progress.onFileFinished();
+                    if (remaining.decrementAndGet() == 0 && task.markDelivered()) {
+                        finishBatch(results, errors, listener);
+                    }
+                }
+            }));
+        }
+        return task;
+    }
+
+    private void finishBatch(Result[] results, List<Exception> errors, BatchListener listener) {
+        List<Result> imported = new ArrayList<>();
+        for (Result result : results) {
+            if (result != null) {
+                imported.add(result);
+            }
+        }
+
+        List<Exception> failures = new ArrayList<>(errors);
+        mainHandler.post(() -> listener.onComplete(imported, failures));
+    }
+
+    private Result importSync(Uri sourceUri, ImportTask task, ProgressSink progress, AtomicLong pendingBytes) throws Exception {
+        File partFile = null;
+        try {
+            checkCancelled(task);
+            SourceMetadata metadata = queryMetadata(sourceUri);
+            String fileName = metadata.displayName != null ? metadata.displayName : "unknown_file";
+            long declaredSize = metadata.size;
+
+            // The real type is only known once the first bytes are in; until then allow the
+            // larger limit and enforce the one for the sniffed type afterwards.
+            if (declaredSize > FileUtils.MAX_FILE_SIZE) {
+                throw new FileTooLargeException(declaredSize, FileUtils.MAX_FILE_SIZE);
+            }
+
+            partFile = new File(FileUtils.createDocumentsDirectory(context),
+                    FileUtils.generateUniqueFileName(fileName) + PART_SUFFIX);
+
+            MessageDigest digest = FileUtils.newContentDigest();
+            FileTypeClassifier.Sniffer sniffer = new FileTypeClassifier.Sniffer();
+            long copied = copy(sourceUri, partFile, declaredSize, FileUtils.MAX_FILE_SIZE, digest, sniffer, task, progress);
+            String contentHash = FileUtils.toHex(digest.digest());
+
+            FileTypeClassifier.Classification classification = sniffer.classify(fileName);
+            String fileType = classification.fileType;
+            String mimeType = classification.mimeType;
+            boolean image = FileTypeClassifier.TYPE_IMAGE.equals(fileType);
+            if (image && copied > FileUtils.MAX_IMAGE_SIZE) {
+                throw new FileTooLargeException(copied, FileUtils.MAX_IMAGE_SIZE);
+            }
+
+            File targetDir = image
+                    ? FileUtils.createImagesDirectory(context)
+                    : FileUtils.createDocumentsDirectory(context);
+            File targetFile = new File(targetDir, FileUtils.getContentFileName(contentHash, fileName));
+            if (image && !targetFile.exists() && FileUtils.compressImageIfNeeded(partFile)) {
+                // Name the file after the bytes actually kept so it can be verified later.
+                contentHash = FileUtils.hashFile(partFile);
+                mimeType = "image/jpeg";
+                targetFile = new File(targetDir, FileUtils.getContentFileName(contentHash, fileName));
+            }
+
+            // Until the task is saved nothing in the database points at the file, so it is
+            // claimed against the reclaimer instead, see FileReclaimer.
+            boolean deduplicated;
+            synchronized (FileReclaimer.STORE_LOCK) {
+                deduplicated = targetFile.exists();
+                if (deduplicated) {
+                    targetFile.setLastModified(System.currentTimeMillis());
+                }
+            }
+            // The existing copy may be compressed in cold storage, so measure the new bytes.
+            long storedSize = partFile.length();
+            boolean nearQuota = false;
+            if (deduplicated) {
+                partFile.delete();
+            } else {
+                // Reserve before checking so parallel imports in the batch see each other's bytes.
+                long reserved = pendingBytes.addAndGet(storedSize);
+                try {
+                    nearQuota = storageQuota.enforce(reserved);
+                    synchronized (FileReclaimer.STORE_LOCK) {
+                        if (!partFile.renameTo(targetFile)) {
+                            throw new IOException("Cannot move " + partFile.getName() + " into place");
+                        }
+                        targetFile.setLastModified(System.currentTimeMillis());
+                    }
+                } catch (Exception e) {
+                    pendingBytes.addAndGet(-storedSize);
+                    throw e;
+                }
+            }
+            partFile = null;
+
+            return new Result(targetFile, fileName, storedSize, fileType, mimeType, contentHash, deduplicated, nearQuota);
+        } finally {
+            if (partFile != null) {
+                partFile.delete();
+            }
+        }
+    }
+
+    private static class SourceMetadata {
+        String displayName;
+        long size = -1;
+    }
+
+    private SourceMetadata queryMetadata(Uri uri) {
+        SourceMetadata metadata = new SourceMetadata();
+        if (!ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            metadata.displayName = uri.getLastPathSegment();
+            return metadata;
+        }
+
+        String[] projection = {OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE};
+        try (Cursor cursor = context.getContentResolver().query(uri, projection, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                if (nameIndex >= 0) {
+                    metadata.displayName = cursor.getString(nameIndex);
+                }
+                if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) {
+                    metadata.size = cursor.getLong(sizeIndex);
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private long copy(Uri sourceUri, File partFile, long declaredSize, long limit, MessageDigest digest,
+                      FileTypeClassifier.Sniffer sniffer, ImportTask task, ProgressSink progress) throws IOException {
+        ParcelFileDescriptor descriptor = null;
+        try {
+            descriptor = context.getContentResolver().openFileDescriptor(sourceUri, "r");
+        } catch (FileNotFoundException | SecurityException e) {
+            // Some providers only hand out streams.
+        }
+
+        try (FileOutputStream outputStream = new FileOutputStream(partFile);
+             FileChannel out = outputStream.getChannel()) {
+
+            long copied;
+            if (descriptor != null) {
+                long statSize = descriptor.getStatSize();
+                if (statSize > limit) {
+                    throw new FileTooLargeException(statSize, limit);
+                }
+                try (FileInputStream inputStream = new FileInputStream(descriptor.getFileDescriptor());
+                     FileChannel in = inputStream.getChannel()) {
+                    copied = stream(in, out, statSize >= 0 ? statSize : declaredSize, limit, digest, sniffer, task, progress);
+                }
+            } else {
+                InputStream inputStream = context.getContentResolver().openInputStream(sourceUri);
+                if (inputStream == null) {
+                    throw new IOException("Cannot open input stream from URI");
+                }
+                try (ReadableByteChannel in = Channels.newChannel(inputStream)) {
+                    copied = stream(in, out, declaredSize, limit, digest, sniffer, task, progress);
+                }
+            }
+
+            out.force(true);
+            return copied;
+        } finally {
+            if (descriptor != null) {
+                descriptor.close();
+            }
+        }
+    }
+
+    /**
+     * Copies and hashes in one pass. The bytes have to pass through the buffer for the
+     * digest anyway, so a zero-copy transferTo would only mean reading them twice. The first
+     * bytes are handed to the sniffer on the way.
+     */
+    private long stream(ReadableByteChannel in, FileChannel out, long declaredSize, long limit,
+                        MessageDigest digest, FileTypeClassifier.Sniffer sniffer, ImportTask task,
+                        ProgressSink progress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long copied = 0;
+        while (in.read(buffer) != -1) {
+            checkCancelled(task);
+            buffer.flip();
+            sniffer.update(buffer);
+            digest.update(buffer);
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                copied += out.write(buffer);
+            }
+            buffer.clear();
+
+            // The provider may not know the size up front; enforce the limit as we go.
+            if (copied > limit) {
+                throw new FileTooLargeException(copied, limit);
+            }
+            progress.onBytes(copied, declaredSize);
+        }
+        return copied;
+    }
+
+    private static void checkCancelled(ImportTask task) throws InterruptedIOException {
+        if (task.isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Import cancelled");
+        }
+    }
+
+    private class ProgressReporter implements ProgressSink {
+        private final Listener listener;
+        private long lastReportUptime;
+
+        ProgressReporter(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onBytes(long copied, long total) {
+            long now = SystemClock.uptimeMillis();
+            if (now - lastReportUptime < PROGRESS_INTERVAL_MS && copied != total) return;
+            lastReportUptime = now;
+            mainHandler.post(() -> listener.onProgress(copied, total));
+        }
+    }
+
+    /**
+     * Sums the progress of every file in a batch into one report, throttled across all workers.
+     */
+    private class BatchProgress {
+        private final int fileCount;
+        private final BatchListener listener;
+        private final AtomicLongArray copiedBytes;
+        private final AtomicLongArray totalBytes;
+        private final AtomicInteger finishedFiles = new AtomicInteger();
+        private final AtomicLong lastReportUptime = new AtomicLong();
+
+        BatchProgress(int fileCount, BatchListener listener) {
+            this.fileCount = fileCount;
+            this.listener = listener;
+            this.copiedBytes = new AtomicLongArray(fileCount);
+            this.totalBytes = new AtomicLongArray(fileCount);
+        }
+
+        void onBytes(int index, long copied, long total) {
+            copiedBytes.set(index, copied);
+            totalBytes.set(index, Math.max(total, copied));
+
+            long now = SystemClock.uptimeMillis();
+            long last = lastReportUptime.get();
+            if (now - last < PROGRESS_INTERVAL_MS || !lastReportUptime.compareAndSet(last, now)) return;
+            post();
+        }
+
+        void onFileFinished() {
+            finishedFiles.incrementAndGet();
+            post();
+        }
+
+        private void post() {
+            long copied = 0;
+            long total = 0;
+            for (int i = 0; i < fileCount; i++) {
+                copied += copiedBytes.get(i);
+                total += totalBytes.get(i);
+            }
+            int finished = finishedFiles.get();
+            long copiedSum = copied;
+            long totalSum = total;
+            mainHandler.post(() -> listener.onProgress(finished, fileCount, copiedSum, totalSum));
+        }
+    }
+}
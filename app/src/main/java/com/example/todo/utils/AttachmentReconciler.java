@@ -0,0 +1,346 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.AttachmentDao;
+import com.example.todo.data.database.entities.Attachment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Brings the attachments directory and the attachments table back in line.
+ *
+ * A pass walks the stored files in path order, CHUNK_SIZE at a time, and merges each chunk
+ * against the rows whose filePath falls in the same range, fetched with one ordered query.
+ * Files no row points to are moved to a quarantine directory and purged a week later;
+ * rows whose file is gone are flagged {@link Attachment#isFileMissing()}. The tree is walked
+ * once per pass into a sorted listing file; each chunk then reads only its own lines from
+ * it. The last path handled and its offset in the listing are checkpointed in preferences,
+ * so a pass can be spread over many short slices and survives the process being killed
+ * between them.
+ */
+public class AttachmentReconciler {
+
+    private static final String TAG = "AttachmentReconciler";
+
+    public static final String QUARANTINE_DIR = "quarantine";
+
+    private static final String KEY_CURSOR = "attachment_reconciler_cursor";
+    private static final String KEY_LISTING_OFFSET = "attachment_reconciler_listing_offset";
+    private static final String LISTING_FILE = "attachment_reconciler_listing";
+    private static final String KEY_LAST_PASS = "attachment_reconciler_last_pass";
+
+    private static final int CHUNK_SIZE = 200;
+    private static final long SLICE_BUDGET_MS = 300L;
+    private static final long PASS_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    // Picked files stay unreferenced until the task that owns them is saved.
+    private static final long ORPHAN_GRACE_MS = 24 * 60 * 60 * 1000L;
+    private static final long QUARANTINE_RETENTION_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    public static class Report {
+        public int scannedFiles;
+        public int quarantinedFiles;
+        public int flaggedMissing;
+        public int restored;
+        public boolean passComplete;
+    }
+
+    private static volatile AttachmentReconciler INSTANCE;
+
+    private final Context context;
+    private final AppDatabase database;
+    private final AttachmentDao attachmentDao;
+    private final SharedPreferences preferences;
+    private final ExecutorService executor;
+    private final DirectoryScanner scanner = new DirectoryScanner();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private AttachmentReconciler(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = AppDatabase.getInstance(this.context);
+        this.attachmentDao = database.attachmentDao();
+        this.preferences = PreferenceManager.getDefaultSharedPreferences(this.context);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "attachment-reconciler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static AttachmentReconciler getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AttachmentReconciler.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AttachmentReconciler(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Runs one short slice in the background if a pass is in progress or due.
+     */
+    public void scheduleSlice() {
+        boolean inProgress = !preferences.getString(KEY_CURSOR, "").isEmpty();
+        long lastPass = preferences.getLong(KEY_LAST_PASS, 0);
+        if (!inProgress && System.currentTimeMillis() - lastPass < PASS_INTERVAL_MS) return;
+
+        executor.execute(() -> {
+            try {
+                runSlice(SLICE_BUDGET_MS);
+            } catch (Exception e) {
+                Log.e(TAG, "Reconciliation slice failed", e);
+            }
+        });
+    }
+
+    /**
+     * Reconciles chunks until the pass ends or {@code budgetMs} is used up. A chunk that has
+     * started always finishes, so the budget can be overrun by one chunk, and the first
+     * chunk of a pass also walks the tree to build the listing.
+     */
+    @WorkerThread
+    public Report runSlice(long budgetMs) {
+        Report report = new Report();
+        if (!running.compareAndSet(false, true)) return report;
+
+        try {
+            long deadline = SystemClock.uptimeMillis() + budgetMs;
+            do {
+                if (reconcileChunk(report)) {
+                    finishPass(report);
+                    break;
+                }
+            } while (SystemClock.uptimeMillis() < deadline);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read the attachment listing", e);
+        } finally {
+            running.set(false);
+        }
+        return report;
+    }
+
+    private boolean reconcileChunk(Report report) throws IOException {
+        String cursor = preferences.getString(KEY_CURSOR, "");
+
+        long offset = preferences.getLong(KEY_LISTING_OFFSET, 0);
+        if (cursor.isEmpty() || !getListingFile().exists()) {
+            offset = writeListing(cursor);
+        }
+        List<String> files = new ArrayList<>(CHUNK_SIZE);
+        offset = readListing(offset, files);
+        boolean lastChunk = files.size() < CHUNK_SIZE;
+        List<Attachment> rows = lastChunk
+                ? attachmentDao.getAttachmentsAfterPath(cursor)
+                : attachmentDao.getAttachmentsInPathRange(cursor, files.get(files.size() - 1));
+        report.scannedFiles += files.size();
+
+        List<String> unmatchedFiles = new ArrayList<>();
+        List<Attachment> unmatchedRows = new ArrayList<>();
+        List<Integer> restoredIds = new ArrayList<>();
+
+        int i = 0;
+        int j = 0;
+        while (i < files.size() || j < rows.size()) {
+            int cmp = i == files.size() ? 1
+                    : j == rows.size() ? -1
+                    : files.get(i).compareTo(rows.get(j).getFilePath());
+            if (cmp < 0) {
+                unmatchedFiles.add(files.get(i++));
+            } else if (cmp > 0) {
+                unmatchedRows.add(rows.get(j++));
+            } else {
+                // Deduplicated attachments share one file.
+                String path = files.get(i++);
+                while (j < rows.size() && path.equals(rows.get(j).getFilePath())) {
+                    Attachment row = rows.get(j++);
+                    if (row.isFileMissing()) {
+                        restoredIds.add(row.getId());
+                    }
+                }
+            }
+        }
+
+        // SQLite and Java order some non-ASCII paths differently, so a mismatch is
+        // confirmed before anything is moved or flagged.
+        List<Integer> missingIds = new ArrayList<>();
+        for (Attachment row : unmatchedRows) {
+            boolean exists = new File(row.getFilePath()).exists();
+            if (!exists && !row.isFileMissing()) {
+                missingIds.add(row.getId());
+            } else if (exists && row.isFileMissing()) {
+                restoredIds.add(row.getId());
+            }
+        }
+        quarantineOrphans(unmatchedFiles, report);
+
+        if (!missingIds.isEmpty() || !restoredIds.isEmpty()) {
+            database.runInTransaction(() -> {
+                if (!missingIds.isEmpty()) {
+                    attachmentDao.setFileMissing(missingIds, true);
+                }
+                if (!restoredIds.isEmpty()) {
+                    attachmentDao.setFileMissing(restoredIds, false);
+                }
+            });
+        }
+        report.flaggedMissing += missingIds.size();
+        report.restored += restoredIds.size();
+
+        preferences.edit()
+                .putString(KEY_CURSOR, lastChunk ? "" : files.get(files.size() - 1))
+                .putLong(KEY_LISTING_OFFSET, lastChunk ? 0 : offset)
+                .apply();
+        return lastChunk;
+    }
+
+    private void quarantineOrphans(List<String> candidates, Report report) {
+        long cutoff = System.currentTimeMillis() - ORPHAN_GRACE_MS;
+        List<String> stale = new ArrayList<>();
+        for (String path : candidates) {
+            if (new File(path).lastModified() < cutoff) {
+                stale.add(path);
+            }
+        }
+        if (stale.isEmpty()) return;
+
+        Set<String> referenced = new HashSet<>(attachmentDao.getReferencedFilePaths(stale));
+        File quarantineDir = getQuarantineDirectory();
+        for (String path : stale) {
+            if (referenced.contains(path)) continue;
+
+            File file = new File(path);
+            File target = new File(quarantineDir, file.getName());
+            if (target.exists()) {
+                target = new File(quarantineDir, System.currentTimeMillis() + "_" + file.getName());
+            }
+            if (file.renameTo(target)) {
+                // Retention counts from the move, not from when the file was written.
+                target.setLastModified(System.currentTimeMillis());
+                report.quarantinedFiles++;
+                Log.i(TAG, "Quarantined orphan " + path);
+            }
+        }
+    }
+
+    private void finishPass(Report report) {
+        report.passComplete = true;
+        preferences.edit()
+                .putString(KEY_CURSOR, "")
+                .putLong(KEY_LISTING_OFFSET, 0)
+                .putLong(KEY_LAST_PASS, System.currentTimeMillis())
+                .apply();
+        getListingFile().delete();
+
+        long cutoff = System.currentTimeMillis() - QUARANTINE_RETENTION_MS;
+        File[] quarantined = getQuarantineDirectory().listFiles();
+        if (quarantined != null) {
+            for (File file : quarantined) {
+                if (file.lastModified() < cutoff) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private File getQuarantineDirectory() {
+        File dir = new File(FileUtils.createAttachmentsDirectory(context), QUARANTINE_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    private File getListingFile() {
+        return new File(context.getFilesDir(), LISTING_FILE);
+    }
+
+    /**
+     * Walks the stored files once and writes their paths in order, one per line.
+     *
+     * @return the byte offset of the first path after {@code cursor}
+     */
+    private long writeListing(String cursor) throws IOException {
+        List<String> paths = new ArrayList<>();
+        scanner.scan(FileUtils.createAttachmentsDirectory(context), new DirectoryScanner.Visitor() {
+            @Override
+            public boolean enterDirectory(File directory) {
+                String name = directory.getName();
+                return !QUARANTINE_DIR.equals(name) && !ThumbnailService.THUMBNAILS_DIR.equals(name);
+            }
+
+            @Override
+            public void visitFile(File file) {
+                String path = file.getAbsolutePath();
+                synchronized (paths) {
+                    paths.add(path);
+                }
+            }
+        });
+        Collections.sort(paths);
+
+        File listing = getListingFile();
+        File tempFile = new File(listing.getParentFile(), LISTING_FILE + ".tmp");
+        long offset = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            for (String path : paths) {
+                // A pass resumed after the listing was lost starts again at the cursor.
+                if (path.compareTo(cursor) <= 0) {
+                    offset += path.getBytes(StandardCharsets.UTF_8).length + 1;
+                }
+                writer.write(path);
+                writer.write('\n');
+            }
+        }
+        if (!tempFile.renameTo(listing)) {
+            tempFile.delete();
+            throw new IOException("Cannot write " + listing);
+        }
+        return offset;
+    }
+
+    /**
+     * Reads up to CHUNK_SIZE paths from the listing, starting at byte {@code offset}.
+     *
+     * @return the offset just past the last path read
+     */
+    private long readListing(long offset, List<String> paths) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(getListingFile())) {
+            inputStream.getChannel().position(offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String path;
+            while (paths.size() < CHUNK_SIZE && (path = reader.readLine()) != null) {
+                paths.add(path);
+                offset += path.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+        return offset;
+    }
+}
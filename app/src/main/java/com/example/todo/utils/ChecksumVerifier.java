@@ -0,0 +1,274 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.AttachmentBlobDao;
+import com.example.todo.data.database.dao.AttachmentDao;
+import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.data.database.entities.AttachmentBlob;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Re-hashes stored attachment files in the background and flags the ones that no longer
+ * match the SHA-256 recorded when they were imported.
+ *
+ * Files are visited in content hash order; the last hash checked is kept in preferences, so
+ * a pass is spread over many short slices and resumes where it stopped. Reads are paced to
+ * MAX_BYTES_PER_SECOND so verification never competes with foreground I/O. Mismatching
+ * attachments are marked {@link Attachment#isChecksumMismatch()}; the flag is cleared again
+ * if a later pass finds the file intact. Attachments imported before content hashing have
+ * nothing to compare against and are skipped.
+ */
+public class ChecksumVerifier {
+
+    private static final String TAG = "ChecksumVerifier";
+
+    private static final String KEY_CURSOR = "checksum_verifier_cursor";
+    private static final String KEY_LAST_PASS = "checksum_verifier_last_pass";
+
+    private static final int BATCH_SIZE = 50;
+    private static final long MAX_BYTES_PER_SECOND = 4L * 1024 * 1024;
+    private static final long SLICE_BUDGET_MS = 10_000L;
+    private static final long PASS_INTERVAL_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    public static class Report {
+        public int verifiedFiles;
+        public long verifiedBytes;
+        public int mismatches;
+        public boolean passComplete;
+    }
+
+    private static volatile ChecksumVerifier INSTANCE;
+
+    private final AttachmentDao attachmentDao;
+    private final AttachmentBlobDao blobDao;
+    private final SharedPreferences preferences;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private ChecksumVerifier(Context context) {
+        Context appContext = context.getApplicationContext();
+        AppDatabase database = AppDatabase.getInstance(appContext);
+        this.attachmentDao = database.attachmentDao();
+        this.blobDao = database.attachmentBlobDao();
+        this.preferences = PreferenceManager.getDefaultSharedPreferences(appContext);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "checksum-verifier");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static ChecksumVerifier getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ChecksumVerifier.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ChecksumVerifier(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Runs one slice in the background if a pass is in progress or due.
+     */
+    public void scheduleSlice() {
+        boolean inProgress = !preferences.getString(KEY_CURSOR, "").isEmpty();
+        long lastPass = preferences.getLong(KEY_LAST_PASS, 0);
+        if (!inProgress && System.currentTimeMillis() - lastPass < PASS_INTERVAL_MS) return;
+
+        executor.execute(() -> {
+            try {
+                runSlice(SLICE_BUDGET_MS);
+            } catch (Exception e) {
+                Log.e(TAG, "Verification slice failed", e);
+            }
+        });
+    }
+
+    /**
+     * Verifies files until the pass ends or {@code budgetMs} is used up. A file that has
+     * started is always finished, so the budget can be overrun by one file.
+     */
+    @WorkerThread
+    public Report runSlice(long budgetMs) {
+        Report report = new Report();
+        if (!running.compareAndSet(false, true)) return report;
+
+        try {
+            long deadline = SystemClock.uptimeMillis() + budgetMs;
+            Pacer pacer = new Pacer(MAX_BYTES_PER_SECOND);
+            while (SystemClock.uptimeMillis() < deadline) {
+                List<AttachmentBlob> blobs = blobDao.getBlobsAfter(preferences.getString(KEY_CURSOR, ""), BATCH_SIZE);
+                if (blobs.isEmpty()) {
+                    finishPass(report);
+                    break;
+                }
+
+                for (AttachmentBlob blob : blobs) {
+                    if (SystemClock.uptimeMillis() >= deadline) break;
+                    verify(blob, pacer, report);
+                    preferences.edit().putString(KEY_CURSOR, blob.getContentHash()).apply();
+                }
+            }
+        } catch (InterruptedIOException e) {
+            Log.i(TAG, "Verification interrupted");
+        } finally {
+            running.set(false);
+        }
+        return report;
+    }
+
+    private void verify(AttachmentBlob blob, Pacer pacer, Report report) throws InterruptedIOException {
+        File file = new File(blob.getFilePath());
+        // Missing files are the reconciler's business.
+        if (!file.exists()) return;
+
+        boolean mismatch;
+        try {
+            mismatch = !matches(file, blob.getContentHash(), pacer);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + blob.getFilePath(), e);
+            return;
+        }
+
+        report.verifiedFiles++;
+        report.verifiedBytes += file.length();
+        if (mismatch) {
+            report.mismatches++;
+        }
+        if (attachmentDao.setChecksumMismatch(blob.getContentHash(), mismatch) > 0 && mismatch) {
+            Log.w(TAG, "Checksum mismatch in " + blob.getFilePath());
+        }
+    }
+
+    /**
+     * Whether the file is in cold storage is decided from the bytes actually read, not from
+     * the database, since ColdStorage may swap the file between the two. A file starting with
+     * the gzip magic is hashed inflated and, if that does not match (an attachment that was a
+     * gzip file to begin with, or a damaged cold file), also as stored, in the same read.
+     */
+    private static boolean matches(File file, String expected, Pacer pacer) throws IOException {
+        MessageDigest storedDigest = FileUtils.newContentDigest();
+        InputStream inflated = null;
+        try (InputStream stored = new BufferedInputStream(new DigestInputStream(
+                new PacedInputStream(new FileInputStream(file), pacer), storedDigest))) {
+            if (startsWithGzipMagic(stored)) {
+                try {
+                    inflated = new GZIPInputStream(stored);
+                    if (expected.equals(FileUtils.hashStream(inflated))) return true;
+                } catch (ZipException | EOFException e) {
+                    // Not inflatable; only the stored bytes can match.
+                }
+            }
+
+            byte[] buffer = new byte[64 * 1024];
+            while (stored.read(buffer) != -1) {
+                // Reading feeds the digest.
+            }
+            return expected.equals(FileUtils.toHex(storedDigest.digest()));
+        } finally {
+            if (inflated != null) {
+                inflated.close();
+            }
+        }
+    }
+
+    private static boolean startsWithGzipMagic(InputStream inputStream) throws IOException {
+        inputStream.mark(2);
+        int first = inputStream.read();
+        int second = inputStream.read();
+        inputStream.reset();
+        return first == 0x1F && second == 0x8B;
+    }
+
+    private void finishPass(Report report) {
+        report.passComplete = true;
+        preferences.edit()
+                .putString(KEY_CURSOR, "")
+                .putLong(KEY_LAST_PASS, System.currentTimeMillis())
+                .apply();
+        Log.i(TAG, "Verification pass complete, " + attachmentDao.getChecksumMismatchCount() + " damaged attachments");
+    }
+
+    /**
+     * Sleeps just long enough to keep the bytes read since it was created under a rate.
+     */
+    private static class Pacer {
+        private final long bytesPerSecond;
+        private final long startNanos = System.nanoTime();
+        private long bytes;
+
+        Pacer(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void onRead(int count) throws InterruptedIOException {
+            bytes += count;
+            long dueNanos = bytes * 1_000_000_000L / bytesPerSecond;
+            long aheadMs = (dueNanos - (System.nanoTime() - startNanos)) / 1_000_000L;
+            if (aheadMs <= 0) return;
+
+            try {
+                Thread.sleep(aheadMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static class PacedInputStream extends FilterInputStream {
+        private final Pacer pacer;
+
+        PacedInputStream(InputStream inputStream, Pacer pacer) {
+            super(inputStream);
+            this.pacer = pacer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                pacer.onRead(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                pacer.onRead(read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.AttachmentDao;
+import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.data.database.entities.StorageUsage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed tier for attachments that are unlikely to be opened again.
+ *
+ * A file is moved to cold storage once every attachment using it belongs to a task that was
+ * completed and due more than COLD_AFTER_MS ago. It is gzipped in place, so its path, and
+ * with it dedup, reconciliation and reclaiming, stay as they are;
+ * {@link Attachment#getCompressedSize()} records the tier.
+ *
+ * Images, video, audio and formats that are compressed already are left raw, as is text,
+ * which the viewer maps in place. Opening a cold attachment inflates it into a cache
+ * directory that is trimmed, least recently opened first, to MAX_CACHE_BYTES.
+ */
+public class ColdStorage {
+
+    private static final String TAG = "ColdStorage";
+
+    public static final String CACHE_DIR = "cold_attachments";
+
+    private static final String KEY_LAST_PASS = "cold_storage_last_pass";
+
+    private static final long COLD_AFTER_MS = 30L * 24 * 60 * 60 * 1000;
+    private static final long PASS_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    private static final int BATCH_SIZE = 32;
+    // Keep the compressed copy only if it saves at least a tenth of the file.
+    private static final double MAX_COMPRESSED_RATIO = 0.9;
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".cold.tmp";
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar", "apk",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp4", "mkv", "webm", "mov", "3gp", "mp3", "aac", "m4a", "ogg", "opus", "flac"));
+
+    public interface Callback {
+        /**
+         * @param file a readable, uncompressed copy, or null if the attachment cannot be read
+         */
+        void onReady(@Nullable File file);
+    }
+
+    private static volatile ColdStorage INSTANCE;
+
+    private final Context context;
+    private final AppDatabase database;
+    private final AttachmentDao attachmentDao;
+    private final SharedPreferences preferences;
+    private final ExecutorService compressExecutor;
+    private final ExecutorService openExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Object cacheLock = new Object();
+
+    private ColdStorage(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = AppDatabase.getInstance(this.context);
+        this.attachmentDao = database.attachmentDao();
+        this.preferences = PreferenceManager.getDefaultSharedPreferences(this.context);
+        this.compressExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cold-storage");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.openExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cold-storage-open");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static ColdStorage getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ColdStorage.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ColdStorage(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Runs a compression pass in the background if the last one was more than a day ago.
+     */
+    public void schedule() {
+        long lastPass = preferences.getLong(KEY_LAST_PASS, 0);
+        if (System.currentTimeMillis() - lastPass < PASS_INTERVAL_MS) return;
+
+        compressExecutor.execute(() -> {
+            try {
+                compressPass();
+            } catch (Exception e) {
+                Log.e(TAG, "Cold storage pass failed", e);
+            }
+        });
+    }
+
+    /**
+     * Moves every eligible file to cold storage.
+     *
+     * @return bytes saved on disk
+     */
+    @WorkerThread
+    public long compressPass() {
+        if (!running.compareAndSet(false, true)) return 0;
+
+        long savedBytes = 0;
+        int compressedFiles = 0;
+        try {
+            long cutoff = System.currentTimeMillis() - COLD_AFTER_MS;
+            Set<String> handled = new HashSet<>();
+            int afterId = 0;
+            List<Attachment> batch;
+            while (!(batch = attachmentDao.getColdCandidates(cutoff, afterId, BATCH_SIZE)).isEmpty()) {
+                for (Attachment attachment : batch) {
+                    afterId = attachment.getId();
+                    // Deduplicated attachments share one file.
+                    if (!handled.add(attachment.getFilePath())) continue;
+
+                    try {
+                        long saved = compress(attachment, cutoff);
+                        if (saved > 0) {
+                            savedBytes += saved;
+                            compressedFiles++;
+                        }
+                    } catch (IOException e) {
+                        Log.w(TAG, "Cannot compress " + attachment.getFilePath(), e);
+                    }
+                }
+            }
+
+            preferences.edit().putLong(KEY_LAST_PASS, System.currentTimeMillis()).apply();
+        } finally {
+            running.set(false);
+        }
+
+        if (compressedFiles > 0) {
+            Log.i(TAG, "Compressed " + compressedFiles + " files, saved " + FileUtils.formatFileSize(savedBytes));
+        }
+        return savedBytes;
+    }
+
+    /**
+     * Text is shown by mapping the stored file, which a gzipped copy would defeat: a large
+     * log would first have to be inflated into the cache, if it fit at all.
+     */
+    private static boolean isText(Attachment attachment) {
+        String mimeType = attachment.getMimeType() != null
+                ? attachment.getMimeType()
+                : FileUtils.getMimeType(attachment.getFileName());
+        return mimeType.startsWith("text/");
+    }
+
+    private long compress(Attachment attachment, long cutoff) throws IOException {
+        String filePath = attachment.getFilePath();
+        if (COMPRESSED_EXTENSIONS.contains(FileUtils.getFileExtension(attachment.getFileName())) || isText(attachment)) {
+            attachmentDao.setCompressedSize(filePath, Attachment.COMPRESSION_SKIPPED);
+            return 0;
+        }
+
+        File file = new File(filePath);
+        File tempFile = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+        long originalSize = file.length();
+        try (InputStream inputStream = new FileInputStream(file);
+             OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE)) {
+            copy(inputStream, outputStream);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+
+        long compressedSize = tempFile.length();
+        if (compressedSize > originalSize * MAX_COMPRESSED_RATIO) {
+            tempFile.delete();
+            attachmentDao.setCompressedSize(filePath, Attachment.COMPRESSION_SKIPPED);
+            return 0;
+        }
+
+        boolean swapped;
+        try {
+            swapped = database.runInTransaction(() -> {
+                // A task may have been reopened, or the file picked again, while compressing.
+                if (!attachmentDao.isStillColdCandidate(filePath, cutoff)) return false;
+
+                attachmentDao.setCompressedSize(filePath, compressedSize);
+                if (attachment.getContentHash() != null) {
+                    database.attachmentBlobDao().setSize(attachment.getContentHash(), compressedSize);
+                }
+                database.storageUsageDao().adjust(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL,
+                        compressedSize - originalSize, 0);
+
+                // Last, so a failed rename rolls the bookkeeping back.
+                if (!tempFile.renameTo(file)) {
+                    throw new IllegalStateException("Cannot replace " + filePath);
+                }
+                return true;
+            });
+        } catch (IllegalStateException e) {
+            Log.w(TAG, e.getMessage());
+            swapped = false;
+        }
+
+        if (!swapped) {
+            tempFile.delete();
+            return 0;
+        }
+        return originalSize - compressedSize;
+    }
+
+    /**
+     * Resolves an attachment to a file other apps can read, inflating it first if it is in
+     * cold storage. The callback runs on the main thread.
+     */
+    public void open(Attachment attachment, Callback callback) {
+        openExecutor.execute(() -> {
+            File file = null;
+            try {
+                file = resolve(attachment);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot inflate " + attachment.getFilePath(), e);
+            }
+            File result = file;
+            mainHandler.post(() -> callback.onReady(result));
+        });
+    }
+
+    @WorkerThread
+    @Nullable
+    public File resolve(Attachment attachment) throws IOException {
+        File stored = new File(attachment.getFilePath());
+        if (!stored.exists()) return null;
+
+        // The row the caller holds may predate the last compression pass.
+        if (attachmentDao.getCompressedSize(attachment.getFilePath()) <= 0) return stored;
+
+        synchronized (cacheLock) {
+            File cacheDir = getCacheDirectory();
+            File cached = new File(cacheDir, stored.getName());
+            if (cached.exists()) {
+                cached.setLastModified(System.currentTimeMillis());
+                return cached;
+            }
+
+            File tempFile = new File(cacheDir, stored.getName() + ".tmp");
+            try (InputStream inputStream = new GZIPInputStream(new FileInputStream(stored), BUFFER_SIZE);
+                 OutputStream outputStream = new FileOutputStream(tempFile)) {
+                copy(inputStream, outputStream);
+            } catch (IOException e) {
+                tempFile.delete();
+                throw e;
+            }
+            if (!tempFile.renameTo(cached)) {
+                tempFile.delete();
+                throw new IOException("Cannot move " + tempFile.getName() + " into the cache");
+            }
+
+            trimCacheLocked(cached);
+            return cached;
+        }
+    }
+
+    private void trimCacheLocked(File keep) {
+        File[] files = getCacheDirectory().listFiles();
+        if (files == null) return;
+
+        long cacheBytes = 0;
+        for (File file : files) {
+            cacheBytes += file.length();
+        }
+        if (cacheBytes <= MAX_CACHE_BYTES) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (cacheBytes <= MAX_CACHE_BYTES) break;
+            if (file.equals(keep)) continue;
+            long length = file.length();
+            if (file.delete()) {
+                cacheBytes -= length;
+            }
+        }
+    }
+
+    private File getCacheDirectory() {
+        File dir = new File(context.getCacheDir(), CACHE_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+    }
+}
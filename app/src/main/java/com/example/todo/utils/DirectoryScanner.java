@@ -0,0 +1,295 @@
+package com.example.todo.utils;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Walks a directory tree on a bounded fork-join pool and hands every file to a
+ * {@link Visitor}.
+ *
+ * Each directory is listed exactly once; its subdirectories are forked as separate tasks
+ * and its files are visited by the task that listed them, so visitors are called from
+ * several threads at once and must be thread-safe. A scan stops early once its
+ * {@link Cancellation} is cancelled.
+ */
+public class DirectoryScanner {
+
+    public interface Visitor {
+        /**
+         * @return false to skip the directory and everything below it
+         */
+        default boolean enterDirectory(File directory) {
+            return true;
+        }
+
+        void visitFile(File file);
+
+        /**
+         * Called once every child of the directory has been visited.
+         */
+        default void leaveDirectory(File directory) {
+        }
+    }
+
+    public static class Cancellation {
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final int DEFAULT_PARALLELISM =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static volatile ForkJoinPool sharedPool;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Scanner on a process-wide pool of at most four workers.
+     */
+    public DirectoryScanner() {
+        this.pool = getSharedPool();
+    }
+
+    /**
+     * Scanner on its own pool; {@link #shutdown()} it when done.
+     */
+    public DirectoryScanner(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    private static ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            synchronized (DirectoryScanner.class) {
+                if (sharedPool == null) {
+                    sharedPool = new ForkJoinPool(DEFAULT_PARALLELISM);
+                }
+            }
+        }
+        return sharedPool;
+    }
+
+    @WorkerThread
+    public boolean scan(File root, Visitor visitor) {
+        return scan(root, visitor, new Cancellation());
+    }
+
+    /**
+     * Blocks until the tree has been visited or the scan was cancelled.
+     *
+     * @return true if the whole tree was visited
+     */
+    @WorkerThread
+    public boolean scan(File root, Visitor visitor, Cancellation cancellation) {
+        if (!root.isDirectory() || !visitor.enterDirectory(root)) return true;
+
+        pool.invoke(new DirectoryTask(root, visitor, cancellation));
+        return !cancellation.isCancelled();
+    }
+
+    public void shutdown() {
+        if (pool != sharedPool) {
+            pool.shutdown();
+        }
+    }
+
+    private static class DirectoryTask extends RecursiveAction {
+        private final File directory;
+        private final Visitor visitor;
+        private final Cancellation cancellation;
+
+        DirectoryTask(File directory, Visitor visitor, Cancellation cancellation) {
+            this.directory = directory;
+            this.visitor = visitor;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancellation.isCancelled()) return;
+
+            File[] children = directory.listFiles();
+            if (children == null) return;
+
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    if (visitor.enterDirectory(child)) {
+                        DirectoryTask subtask = new DirectoryTask(child, visitor, cancellation);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    }
+                } else {
+                    if (cancellation.isCancelled()) break;
+                    visitor.visitFile(child);
+                }
+            }
+
+            for (DirectoryTask subtask : subtasks) {
+                subtask.join();
+            }
+            if (!cancellation.isCancelled()) {
+                visitor.leaveDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Sums file sizes.
+     */
+    public static class SizeVisitor implements Visitor {
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder files = new LongAdder();
+
+        @Override
+        public void visitFile(File file) {
+            bytes.add(file.length());
+            files.increment();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public long getFileCount() {
+            return files.sum();
+        }
+    }
+
+    /**
+     * Deletes files last modified before a cutoff, then directories left empty.
+     */
+    public static class AgeCleanupVisitor implements Visitor {
+        private final long cutoffTime;
+        private final File root;
+        private final LongAdder deletedBytes = new LongAdder();
+        private final LongAdder deletedFiles = new LongAdder();
+
+        public AgeCleanupVisitor(File root, long cutoffTime) {
+            this.root = root;
+            this.cutoffTime = cutoffTime;
+        }
+
+        @Override
+        public void visitFile(File file) {
+            if (file.lastModified() >= cutoffTime) return;
+
+            long length = file.length();
+            if (file.delete()) {
+                deletedBytes.add(length);
+                deletedFiles.increment();
+            }
+        }
+
+        @Override
+        public void leaveDirectory(File directory) {
+            String[] remaining = directory.list();
+            if (remaining != null && remaining.length == 0 && !directory.equals(root)) {
+                directory.delete();
+            }
+        }
+
+        public long getDeletedBytes() {
+            return deletedBytes.sum();
+        }
+
+        public long getDeletedFiles() {
+            return deletedFiles.sum();
+        }
+    }
+
+    /**
+     * Re-hashes content-addressed files (named after their SHA-256) and collects the ones
+     * whose bytes no longer match their name. Other files are skipped.
+     */
+    public static class ChecksumVisitor implements Visitor {
+        private static final Pattern CONTENT_NAME = Pattern.compile("^[0-9a-f]{64}(\\..*)?$");
+
+        private final Queue<File> mismatches = new ConcurrentLinkedQueue<>();
+        private final Queue<File> unreadable = new ConcurrentLinkedQueue<>();
+        private final LongAdder verifiedFiles = new LongAdder();
+
+        @Override
+        public void visitFile(File file) {
+            String name = file.getName();
+            if (!CONTENT_NAME.matcher(name).matches()) return;
+
+            try {
+                if (!matches(file, name.substring(0, 64))) {
+                    mismatches.add(file);
+                }
+                verifiedFiles.increment();
+            } catch (IOException e) {
+                unreadable.add(file);
+            }
+        }
+
+        private static boolean matches(File file, String expected) throws IOException {
+            if (expected.equals(FileUtils.hashFile(file))) return true;
+
+            // Cold storage gzips files in place; their name is the hash of the inflated bytes.
+            try (InputStream inputStream = new GZIPInputStream(new FileInputStream(file))) {
+                return expected.equals(FileUtils.hashStream(inputStream));
+            } catch (ZipException | EOFException e) {
+                return false;
+            }
+        }
+
+        public List<File> getMismatches() {
+            return new ArrayList<>(mismatches);
+        }
+
+        public List<File> getUnreadable() {
+            return new ArrayList<>(unreadable);
+        }
+
+        public long getVerifiedFiles() {
+            return verifiedFiles.sum();
+        }
+    }
+
+    /**
+     * Collects files whose absolute path is not in a known set.
+     */
+    public static class OrphanVisitor implements Visitor {
+        private final Set<String> referencedPaths;
+        private final Queue<File> orphans = new ConcurrentLinkedQueue<>();
+
+        public OrphanVisitor(Set<String> referencedPaths) {
+            this.referencedPaths = referencedPaths;
+        }
+
+        @Override
+        public void visitFile(File file) {
+            if (!referencedPaths.contains(file.getAbsolutePath())) {
+                orphans.add(file);
+            }
+        }
+
+        public List<File> getOrphans() {
+            return new ArrayList<>(orphans);
+        }
+    }
+}
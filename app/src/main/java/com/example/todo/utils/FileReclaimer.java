@@ -0,0 +1,184 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.PendingFileDeletionDao;
+import com.example.todo.data.database.entities.PendingFileDeletion;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the files and thumbnails of deleted attachments in the background.
+ *
+ * Deletions only record a {@link PendingFileDeletion} row inside their own transaction;
+ * this class drains those rows in batches on a low-priority thread, a short while after
+ * the last deletion so that deleting several tasks in a row costs one pass. Rows left over
+ * when the process died are picked up the next time the queue is scheduled.
+ *
+ * An import that reuses a stored file does not reference it in the database until its task
+ * is saved. It claims the file instead by touching its modification time under
+ * {@link #STORE_LOCK}, and this class re-checks references and claims under the same lock
+ * right before deleting. A file claimed after its deletion was queued is left alone; if the
+ * claim is never saved, the reconciler's orphan sweep removes the file later.
+ */
+public class FileReclaimer {
+
+    private static final String TAG = "FileReclaimer";
+
+    private static final String KEY_RECLAIMED_BYTES = "file_reclaimer_reclaimed_bytes";
+    private static final String KEY_RECLAIMED_FILES = "file_reclaimer_reclaimed_files";
+
+    private static final int BATCH_SIZE = 64;
+    private static final long DRAIN_DELAY_MS = 2_000L;
+    // Some file systems keep modification times to the second only.
+    private static final long CLAIM_CLOCK_SLACK_MS = 2_000L;
+
+    /**
+     * Held while deciding to delete a stored file and while an import reuses or places one.
+     */
+    public static final Object STORE_LOCK = new Object();
+
+    private static volatile FileReclaimer INSTANCE;
+
+    private final AppDatabase database;
+    private final PendingFileDeletionDao pendingDao;
+    private final ThumbnailService thumbnailService;
+    private final SharedPreferences preferences;
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> pendingDrain;
+
+    private FileReclaimer(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.database = AppDatabase.getInstance(appContext);
+        this.pendingDao = database.pendingFileDeletionDao();
+        this.thumbnailService = ThumbnailService.getInstance(appContext);
+        this.preferences = PreferenceManager.getDefaultSharedPreferences(appContext);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "file-reclaimer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static FileReclaimer getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (FileReclaimer.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new FileReclaimer(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Drains the queue shortly. Calls made while a drain is already waiting are folded into it.
+     */
+    public synchronized void schedule() {
+        if (pendingDrain != null && !pendingDrain.isDone()) return;
+
+        pendingDrain = executor.schedule(() -> {
+            try {
+                reclaimPending();
+            } catch (Exception e) {
+                Log.e(TAG, "Reclaiming attachment files failed", e);
+            }
+        }, DRAIN_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Processes the whole queue.
+     *
+     * @return bytes freed on disk, thumbnails not included
+     */
+    @WorkerThread
+    public long reclaimPending() {
+        long reclaimedBytes = 0;
+        int reclaimedFiles = 0;
+
+        List<PendingFileDeletion> batch;
+        while (!(batch = pendingDao.getBatch(BATCH_SIZE)).isEmpty()) {
+            List<Long> ids = new ArrayList<>(batch.size());
+            List<String> filePaths = new ArrayList<>();
+            for (PendingFileDeletion deletion : batch) {
+                ids.add(deletion.getId());
+                if (deletion.getFilePath() != null) {
+                    filePaths.add(deletion.getFilePath());
+                }
+            }
+
+            for (PendingFileDeletion deletion : batch) {
+                thumbnailService.invalidate(deletion.getAttachmentId());
+            }
+
+            synchronized (STORE_LOCK) {
+                // An import may have stored the same content again since the deletion was queued.
+                Set<String> referenced = filePaths.isEmpty()
+                        ? new HashSet<>()
+                        : new HashSet<>(database.attachmentDao().getReferencedFilePaths(filePaths));
+
+                for (PendingFileDeletion deletion : batch) {
+                    String filePath = deletion.getFilePath();
+                    if (filePath == null || referenced.contains(filePath)) continue;
+
+                    File file = new File(filePath);
+                    if (file.lastModified() >= deletion.getEnqueuedAt() - CLAIM_CLOCK_SLACK_MS) {
+                        // Claimed by an import whose task has not been saved yet.
+                        continue;
+                    }
+                    long length = file.length();
+                    if (file.delete()) {
+                        reclaimedBytes += length;
+                        reclaimedFiles++;
+                    } else if (file.exists()) {
+                        Log.w(TAG, "Cannot delete " + filePath);
+                    }
+                }
+            }
+
+            pendingDao.deleteByIds(ids);
+        }
+
+        if (reclaimedFiles > 0) {
+            synchronized (preferences) {
+                preferences.edit()
+                        .putLong(KEY_RECLAIMED_BYTES, getReclaimedBytes() + reclaimedBytes)
+                        .putLong(KEY_RECLAIMED_FILES, getReclaimedFiles() + reclaimedFiles)
+                        .apply();
+            }
+            Log.i(TAG, "Reclaimed " + reclaimedFiles + " files, " + FileUtils.formatFileSize(reclaimedBytes));
+        }
+        return reclaimedBytes;
+    }
+
+    @WorkerThread
+    public int getPendingCount() {
+        return pendingDao.getCount();
+    }
+
+    /**
+     * @return bytes freed since the app was installed
+     */
+    public long getReclaimedBytes() {
+        return preferences.getLong(KEY_RECLAIMED_BYTES, 0);
+    }
+
+    public long getReclaimedFiles() {
+        return preferences.getLong(KEY_RECLAIMED_FILES, 0);
+    }
+}
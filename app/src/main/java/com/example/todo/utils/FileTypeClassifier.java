@@ -0,0 +1,236 @@
+package com.example.todo.utils;
+
+import android.webkit.MimeTypeMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out an attachment's type and MIME type, preferring what its first bytes say over
+ * what its name says.
+ *
+ * Known formats are recognised by their magic numbers. Zip and OLE containers hold many
+ * formats, so for those the extension decides between, say, docx and a plain zip, but only
+ * among the formats that container actually carries. Files
+ * without a signature, such as plain text, are classified by extension alone, except that
+ * a name claiming a binary image, video or audio format is not believed without one.
+ * Extensions are looked up in a table built once.
+ */
+public final class FileTypeClassifier {
+
+    public static final String TYPE_IMAGE = "image";
+    public static final String TYPE_DOCUMENT = "document";
+    public static final String TYPE_VIDEO = "video";
+    public static final String TYPE_AUDIO = "audio";
+    public static final String TYPE_OTHER = "other";
+
+    public static final String MIME_UNKNOWN = "application/octet-stream";
+
+    public static final int HEADER_SIZE = 16;
+
+    public static class Classification {
+        public final String fileType;
+        public final String mimeType;
+
+        Classification(String fileType, String mimeType) {
+            this.fileType = fileType;
+            this.mimeType = mimeType;
+        }
+    }
+
+    private static final Classification OTHER = new Classification(TYPE_OTHER, MIME_UNKNOWN);
+    private static final Classification ZIP = new Classification(TYPE_OTHER, "application/zip");
+    private static final Classification OLE = new Classification(TYPE_DOCUMENT, "application/x-ole-storage");
+    private static final Classification ASF = new Classification(TYPE_VIDEO, "video/x-ms-asf");
+
+    private static final Map<String, Classification> BY_EXTENSION = new HashMap<>();
+
+    /** Formats stored in a zip container, the only names a zip signature can stand for. */
+    private static final Set<String> ZIP_FORMATS = new HashSet<>(Arrays.asList(
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+            "application/vnd.oasis.opendocument.text"));
+
+    /** Formats stored in an OLE compound file. */
+    private static final Set<String> OLE_FORMATS = new HashSet<>(Arrays.asList(
+            "application/msword",
+            "application/vnd.ms-excel",
+            "application/vnd.ms-powerpoint"));
+
+    static {
+        register(TYPE_IMAGE, "image/jpeg", "jpg", "jpeg");
+        register(TYPE_IMAGE, "image/png", "png");
+        register(TYPE_IMAGE, "image/gif", "gif");
+        register(TYPE_IMAGE, "image/bmp", "bmp");
+        register(TYPE_IMAGE, "image/webp", "webp");
+        register(TYPE_IMAGE, "image/svg+xml", "svg");
+
+        register(TYPE_DOCUMENT, "application/pdf", "pdf");
+        register(TYPE_DOCUMENT, "application/msword", "doc");
+        register(TYPE_DOCUMENT, "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "docx");
+        register(TYPE_DOCUMENT, "application/vnd.ms-excel", "xls");
+        register(TYPE_DOCUMENT, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+        register(TYPE_DOCUMENT, "application/vnd.ms-powerpoint", "ppt");
+        register(TYPE_DOCUMENT, "application/vnd.openxmlformats-officedocument.presentationml.presentation", "pptx");
+        register(TYPE_DOCUMENT, "text/plain", "txt");
+        register(TYPE_DOCUMENT, "application/rtf", "rtf");
+        register(TYPE_DOCUMENT, "application/vnd.oasis.opendocument.text", "odt");
+
+        register(TYPE_VIDEO, "video/mp4", "mp4");
+        register(TYPE_VIDEO, "video/x-msvideo", "avi");
+        register(TYPE_VIDEO, "video/x-matroska", "mkv");
+        register(TYPE_VIDEO, "video/quicktime", "mov");
+        register(TYPE_VIDEO, "video/x-ms-wmv", "wmv");
+        register(TYPE_VIDEO, "video/x-flv", "flv");
+        register(TYPE_VIDEO, "video/webm", "webm");
+
+        register(TYPE_AUDIO, "audio/mpeg", "mp3");
+        register(TYPE_AUDIO, "audio/wav", "wav");
+        register(TYPE_AUDIO, "audio/flac", "flac");
+        register(TYPE_AUDIO, "audio/aac", "aac");
+        register(TYPE_AUDIO, "audio/ogg", "ogg");
+        register(TYPE_AUDIO, "audio/x-ms-wma", "wma");
+    }
+
+    private static void register(String fileType, String mimeType, String... extensions) {
+        Classification classification = new Classification(fileType, mimeType);
+        for (String extension : extensions) {
+            BY_EXTENSION.put(extension, classification);
+        }
+    }
+
+    private FileTypeClassifier() {
+    }
+
+    /**
+     * Classifies by file name only.
+     */
+    public static Classification fromExtension(String fileName) {
+        String extension = FileUtils.getFileExtension(fileName);
+        Classification classification = BY_EXTENSION.get(extension);
+        if (classification != null) return classification;
+
+        String mimeType = extension.isEmpty() ? null : MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        return mimeType != null ? new Classification(TYPE_OTHER, mimeType) : OTHER;
+    }
+
+    /**
+     * @param header the first bytes of the file, at most {@link #HEADER_SIZE} are looked at
+     * @param length how many bytes of {@code header} are valid
+     */
+    public static Classification classify(byte[] header, int length, String fileName) {
+        Classification byExtension = fromExtension(fileName);
+        Classification sniffed = sniff(header, length);
+
+        if (sniffed == ZIP) {
+            // Office documents, archives and packages share this container.
+            return ZIP_FORMATS.contains(byExtension.mimeType) ? byExtension : sniffed;
+        }
+        if (sniffed == OLE) {
+            return OLE_FORMATS.contains(byExtension.mimeType) ? byExtension : sniffed;
+        }
+        if (sniffed == ASF) {
+            // ASF carries both WMV and WMA.
+            boolean media = TYPE_VIDEO.equals(byExtension.fileType) || TYPE_AUDIO.equals(byExtension.fileType);
+            return media ? byExtension : sniffed;
+        }
+        if (sniffed != null) {
+            return byExtension.mimeType.equals(sniffed.mimeType) ? byExtension : sniffed;
+        }
+
+        boolean binaryMedia = TYPE_VIDEO.equals(byExtension.fileType) || TYPE_AUDIO.equals(byExtension.fileType)
+                || (TYPE_IMAGE.equals(byExtension.fileType) && !"image/svg+xml".equals(byExtension.mimeType));
+        return binaryMedia ? OTHER : byExtension;
+    }
+
+    private static Classification sniff(byte[] h, int n) {
+        if (startsWith(h, n, 0, 0xFF, 0xD8, 0xFF)) return image("image/jpeg");
+        if (startsWith(h, n, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return image("image/png");
+        if (startsWith(h, n, 0, "GIF87a") || startsWith(h, n, 0, "GIF89a")) return image("image/gif");
+        if (startsWith(h, n, 0, "BM") && n >= 14) return image("image/bmp");
+        if (startsWith(h, n, 0, "%PDF-")) return new Classification(TYPE_DOCUMENT, "application/pdf");
+        if (startsWith(h, n, 0, "{\\rtf")) return new Classification(TYPE_DOCUMENT, "application/rtf");
+        if (startsWith(h, n, 0, 'P', 'K', 0x03, 0x04)) return ZIP;
+        if (startsWith(h, n, 0, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) return OLE;
+        if (startsWith(h, n, 0, 0x1F, 0x8B)) return new Classification(TYPE_OTHER, "application/gzip");
+
+        if (startsWith(h, n, 0, "RIFF")) {
+            if (startsWith(h, n, 8, "WEBP")) return image("image/webp");
+            if (startsWith(h, n, 8, "WAVE")) return new Classification(TYPE_AUDIO, "audio/wav");
+            if (startsWith(h, n, 8, "AVI ")) return new Classification(TYPE_VIDEO, "video/x-msvideo");
+            return null;
+        }
+        if (startsWith(h, n, 4, "ftyp")) {
+            if (startsWith(h, n, 8, "heic") || startsWith(h, n, 8, "heix") || startsWith(h, n, 8, "mif1")) {
+                return image("image/heic");
+            }
+            if (startsWith(h, n, 8, "M4A ")) return new Classification(TYPE_AUDIO, "audio/mp4");
+            if (startsWith(h, n, 8, "qt  ")) return new Classification(TYPE_VIDEO, "video/quicktime");
+            return new Classification(TYPE_VIDEO, "video/mp4");
+        }
+        if (startsWith(h, n, 0, 0x1A, 0x45, 0xDF, 0xA3)) return new Classification(TYPE_VIDEO, "video/x-matroska");
+        if (startsWith(h, n, 0, "FLV")) return new Classification(TYPE_VIDEO, "video/x-flv");
+        if (startsWith(h, n, 0, 0x30, 0x26, 0xB2, 0x75)) return ASF;
+
+        if (startsWith(h, n, 0, "ID3")) return new Classification(TYPE_AUDIO, "audio/mpeg");
+        if (startsWith(h, n, 0, "fLaC")) return new Classification(TYPE_AUDIO, "audio/flac");
+        if (startsWith(h, n, 0, "OggS")) return new Classification(TYPE_AUDIO, "audio/ogg");
+        if (n >= 2 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xF6) == 0xF0) return new Classification(TYPE_AUDIO, "audio/aac");
+        // MPEG frame sync; FF FE is a UTF-16 byte order mark, not audio.
+        if (n >= 2 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xE0) == 0xE0 && (h[1] & 0xFF) < 0xFE) {
+            return new Classification(TYPE_AUDIO, "audio/mpeg");
+        }
+        return null;
+    }
+
+    private static Classification image(String mimeType) {
+        return new Classification(TYPE_IMAGE, mimeType);
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... signature) {
+        if (length < offset + signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[offset + i] & 0xFF) != signature[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, String signature) {
+        byte[] bytes = signature.getBytes(StandardCharsets.US_ASCII);
+        if (length < offset + bytes.length) return false;
+        for (int i = 0; i < bytes.length; i++) {
+            if (header[offset + i] != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the first {@link #HEADER_SIZE} bytes of a stream as it is copied.
+     */
+    public static class Sniffer {
+        private final byte[] header = new byte[HEADER_SIZE];
+        private int length;
+
+        /**
+         * Reads from {@code buffer} between its position and limit without moving either.
+         */
+        public void update(ByteBuffer buffer) {
+            if (length == HEADER_SIZE) return;
+
+            ByteBuffer view = buffer.duplicate();
+            int count = Math.min(HEADER_SIZE - length, view.remaining());
+            view.get(header, length, count);
+            length += count;
+        }
+
+        public Classification classify(String fileName) {
+            return FileTypeClassifier.classify(header, length, fileName);
+        }
+    }
+}
@@ -3,15 +3,22 @@ package com.example.todo.utils;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.net.Uri;
-import android.webkit.MimeTypeMap;
 
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
 
 public class FileUtils {
 
@@ -57,85 +64,113 @@ public class FileUtils {
         return "file_" + timestamp + (extension.isEmpty() ? "" : "." + extension);
     }
 
-    public static String getFileExtension(String fileName) {
-        if (fileName == null || fileName.isEmpty()) return "";
+    public static final String CONTENT_HASH_ALGORITHM = "SHA-256";
 
-        int lastDotIndex = fileName.lastIndexOf('.');
-        if (lastDotIndex == -1 || lastDotIndex == fileName.length() - 1) {
-            return "";
+    public static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(CONTENT_HASH_ALGORITHM + " is not available", e);
         }
-        return fileName.substring(lastDotIndex + 1).toLowerCase();
     }
 
-    public static String getFileNameWithoutExtension(String fileName) {
-        if (fileName == null || fileName.isEmpty()) return "";
-
-        int lastDotIndex = fileName.lastIndexOf('.');
-        if (lastDotIndex == -1) {
-            return fileName;
+    public static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = digits[bytes[i] & 0xF];
         }
-        return fileName.substring(0, lastDotIndex);
+        return new String(hex);
     }
 
-    public static String getFileType(String fileName) {
-        String extension = getFileExtension(fileName);
-
-        if (extension.matches("(?i)(jpg|jpeg|png|gif|bmp|webp|svg)")) {
-            return "image";
+    @WorkerThread
+    public static String hashFile(File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return hashStream(inputStream);
         }
+    }
 
-        if (extension.matches("(?i)(pdf|doc|docx|xls|xlsx|ppt|pptx|txt|rtf|odt)")) {
-            return "document";
+    @WorkerThread
+    public static String hashStream(InputStream inputStream) throws IOException {
+        MessageDigest digest = newContentDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
         }
+        return toHex(digest.digest());
+    }
 
-        if (extension.matches("(?i)(mp4|avi|mkv|mov|wmv|flv|webm)")) {
-            return "video";
-        }
+    /**
+     * Hashes a stored file as it is on disk and, if it starts like a gzip stream, also
+     * inflated, in a single read. Which of the two is its content depends on whether cold
+     * storage compressed it, which the caller knows.
+     *
+     * @return {stored hash, inflated hash or null}
+     */
+    @WorkerThread
+    public static String[] hashStoredFile(File file) throws IOException {
+        MessageDigest storedDigest = newContentDigest();
+        String inflatedHash = null;
+        try (InputStream stored = new BufferedInputStream(new DigestInputStream(new FileInputStream(file), storedDigest))) {
+            stored.mark(2);
+            boolean gzip = stored.read() == 0x1F && stored.read() == 0x8B;
+            stored.reset();
+            if (gzip) {
+                try {
+                    inflatedHash = hashStream(new GZIPInputStream(stored));
+                } catch (ZipException | EOFException e) {
+                    // Not a gzip stream after all.
+                }
+            }
 
-        if (extension.matches("(?i)(mp3|wav|flac|aac|ogg|wma)")) {
-            return "audio";
+            byte[] buffer = new byte[64 * 1024];
+            while (stored.read(buffer) != -1) {
+                // Reading feeds the digest.
+            }
         }
-
-        return "other";
+        return new String[]{toHex(storedDigest.digest()), inflatedHash};
     }
 
-    public static String getMimeType(String fileName) {
-        String extension = getFileExtension(fileName);
-        if (extension.isEmpty()) return "application/octet-stream";
-
-        String mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
-        return mimeType != null ? mimeType : "application/octet-stream";
+    /**
+     * Name a stored file gets from its content hash, so identical files share one path.
+     */
+    public static String getContentFileName(String contentHash, String originalName) {
+        String extension = getFileExtension(originalName);
+        return contentHash + (extension.isEmpty() ? "" : "." + extension);
     }
 
-    public static File copyFileToAppDirectory(Context context, Uri sourceUri, String targetFileName) throws IOException {
-        String fileType = getFileType(targetFileName);
-        File targetDir;
+    public static String getFileExtension(String fileName) {
+        if (fileName == null || fileName.isEmpty()) return "";
 
-        if ("image".equals(fileType)) {
-            targetDir = createImagesDirectory(context);
-        } else {
-            targetDir = createDocumentsDirectory(context);
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex == -1 || lastDotIndex == fileName.length() - 1) {
+            return "";
         }
+        return fileName.substring(lastDotIndex + 1).toLowerCase();
+    }
 
-        File targetFile = new File(targetDir, targetFileName);
-
-        try (InputStream inputStream = context.getContentResolver().openInputStream(sourceUri);
-             FileOutputStream outputStream = new FileOutputStream(targetFile)) {
-
-            if (inputStream == null) {
-                throw new IOException("Cannot open input stream from URI");
-            }
+    public static String getFileNameWithoutExtension(String fileName) {
+        if (fileName == null || fileName.isEmpty()) return "";
 
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex == -1) {
+            return fileName;
         }
+        return fileName.substring(0, lastDotIndex);
+    }
 
-        return targetFile;
+    /**
+     * Type implied by the file name. Imports sniff the content instead, see {@link FileTypeClassifier}.
+     */
+    public static String getFileType(String fileName) {
+        return FileTypeClassifier.fromExtension(fileName).fileType;
     }
 
+    public static String getMimeType(String fileName) {
+        return FileTypeClassifier.fromExtension(fileName).mimeType;
+    }
 
     public static boolean copyFile(File source, File destination) {
         try (FileInputStream inputStream = new FileInputStream(source);
@@ -153,72 +188,78 @@ public class FileUtils {
         }
     }
 
-    public static File compressImageIfNeeded(File imageFile) {
-        try {
-            Bitmap bitmap = BitmapFactory.decodeFile(imageFile.getAbsolutePath());
-            if (bitmap == null) return imageFile;
-
-            int width = bitmap.getWidth();
-            int height = bitmap.getHeight();
-
-            if (width <= MAX_IMAGE_WIDTH && height <= MAX_IMAGE_HEIGHT &&
-                    imageFile.length() <= MAX_IMAGE_SIZE) {
-                return imageFile;
-            }
-
-            float aspectRatio = (float) width / height;
-            int newWidth, newHeight;
-
-            if (width > height) {
-                newWidth = MAX_IMAGE_WIDTH;
-                newHeight = (int) (newWidth / aspectRatio);
-            } else {
-                newHeight = MAX_IMAGE_HEIGHT;
-                newWidth = (int) (newHeight * aspectRatio);
-            }
-
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
-
-            try (FileOutputStream outputStream = new FileOutputStream(imageFile)) {
-                scaledBitmap.compress(Bitmap.CompressFormat.JPEG, 85, outputStream);
-            }
+    /**
+     * Reads only the image header.
+     *
+     * @return {width, height}, or null if the file is not a decodable image
+     */
+    public static int[] decodeImageBounds(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        return new int[]{options.outWidth, options.outHeight};
+    }
 
-            bitmap.recycle();
-            scaledBitmap.recycle();
+    /**
+     * Decodes an image so that it fits inside {@code maxWidth x maxHeight}, keeping its aspect
+     * ratio. The decoder subsamples first, so peak memory follows the target size rather than
+     * the source resolution.
+     */
+    public static Bitmap decodeSampledBitmap(String path, int maxWidth, int maxHeight) {
+        int[] bounds = decodeImageBounds(path);
+        if (bounds == null) return null;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = ImageSizing.calculateInSampleSize(bounds[0], bounds[1], maxWidth, maxHeight);
+        Bitmap sampled = BitmapFactory.decodeFile(path, options);
+        if (sampled == null) return null;
+
+        int[] target = ImageSizing.fitWithin(bounds[0], bounds[1], maxWidth, maxHeight);
+        if (sampled.getWidth() == target[0] && sampled.getHeight() == target[1]) {
+            return sampled;
+        }
 
-            return imageFile;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return imageFile;
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled, target[0], target[1], true);
+        if (scaled != sampled) {
+            sampled.recycle();
         }
+        return scaled;
     }
 
-
-    public static File createThumbnail(Context context, File imageFile, String thumbnailName) {
+    /**
+     * Re-encodes an oversized image in place.
+     *
+     * @return true if the file was rewritten
+     */
+    public static boolean compressImageIfNeeded(File imageFile) {
         try {
-            File thumbnailsDir = new File(createImagesDirectory(context), "thumbnails");
-            if (!thumbnailsDir.exists()) {
-                thumbnailsDir.mkdirs();
-            }
+            int[] bounds = decodeImageBounds(imageFile.getAbsolutePath());
+            if (bounds == null) return false;
 
-            File thumbnailFile = new File(thumbnailsDir, thumbnailName);
-
-            Bitmap bitmap = BitmapFactory.decodeFile(imageFile.getAbsolutePath());
-            if (bitmap == null) return null;
+            if (bounds[0] <= MAX_IMAGE_WIDTH && bounds[1] <= MAX_IMAGE_HEIGHT &&
+                    imageFile.length() <= MAX_IMAGE_SIZE) {
+                return false;
+            }
 
-            Bitmap thumbnail = Bitmap.createScaledBitmap(bitmap, 150, 150, true);
+            Bitmap bitmap = decodeSampledBitmap(imageFile.getAbsolutePath(), MAX_IMAGE_WIDTH, MAX_IMAGE_HEIGHT);
+            if (bitmap == null) return false;
 
-            try (FileOutputStream outputStream = new FileOutputStream(thumbnailFile)) {
-                thumbnail.compress(Bitmap.CompressFormat.JPEG, 70, outputStream);
+            File compressedFile = new File(imageFile.getParentFile(), imageFile.getName() + ".tmp");
+            try (FileOutputStream outputStream = new FileOutputStream(compressedFile)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, outputStream);
+            } finally {
+                bitmap.recycle();
             }
 
-            bitmap.recycle();
-            thumbnail.recycle();
-
-            return thumbnailFile;
+            if (!compressedFile.renameTo(imageFile)) {
+                compressedFile.delete();
+                return false;
+            }
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
-            return null;
+            return false;
         }
     }
 
@@ -265,65 +306,21 @@ public class FileUtils {
         return file.exists() && file.delete();
     }
 
-    public static boolean deleteFileWithThumbnail(Context context, String filePath) {
-        boolean mainDeleted = deleteFile(filePath);
-        if (isImageFile(filePath)) {
-            String fileName = new File(filePath).getName();
-            String thumbnailName = "thumb_" + fileName;
-            File thumbnailsDir = new File(createImagesDirectory(context), "thumbnails");
-            File thumbnailFile = new File(thumbnailsDir, thumbnailName);
-
-            if (thumbnailFile.exists()) {
-                thumbnailFile.delete();
-            }
-        }
-
-        return mainDeleted;
-    }
-
-    public static void cleanupOldFiles(Context context, long maxAgeInMillis) {
-        File attachmentsDir = new File(context.getFilesDir(), ATTACHMENTS_DIR);
-        if (!attachmentsDir.exists()) return;
-
-        long cutoffTime = System.currentTimeMillis() - maxAgeInMillis;
-        cleanupDirectory(attachmentsDir, cutoffTime);
-    }
-
-    private static void cleanupDirectory(File directory, long cutoffTime) {
-        File[] files = directory.listFiles();
-        if (files == null) return;
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                cleanupDirectory(file, cutoffTime);
-                if (file.list() != null && file.list().length == 0) {
-                    file.delete();
-                }
-            } else if (file.lastModified() < cutoffTime) {
-                file.delete();
-            }
-        }
-    }
-
+    /**
+     * Bytes of attachment files on disk, read from the storage counters rather than measured.
+     */
+    @WorkerThread
     public static long getTotalAttachmentsSize(Context context) {
-        File attachmentsDir = new File(context.getFilesDir(), ATTACHMENTS_DIR);
-        return getDirectorySize(attachmentsDir);
+        return new StorageQuota(context).getUsedBytes();
     }
 
-    private static long getDirectorySize(File directory) {
-        long size = 0;
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        size += getDirectorySize(file);
-                    } else {
-                        size += file.length();
-                    }
-                }
-            }
-        }
-        return size;
+    /**
+     * Measures a directory on disk. Prefer {@link #getTotalAttachmentsSize} for attachments.
+     */
+    @WorkerThread
+    public static long getDirectorySize(File directory) {
+        DirectoryScanner.SizeVisitor visitor = new DirectoryScanner.SizeVisitor();
+        new DirectoryScanner().scan(directory, visitor);
+        return visitor.getBytes();
     }
 }
\ No newline at end of file
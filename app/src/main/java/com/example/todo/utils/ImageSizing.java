@@ -0,0 +1,53 @@
+package com.example.todo.utils;
+
+/**
+ * Size arithmetic for downscaling images, kept free of Android types so it can be
+ * exercised on a plain JVM.
+ *
+ * Decoding happens in two steps: BitmapFactory subsamples by a power of two
+ * ({@link #calculateInSampleSize}) so the decoded bitmap is never much larger than the
+ * target, then a single precise scale brings it to {@link #fitWithin}.
+ */
+public final class ImageSizing {
+
+    private ImageSizing() {
+    }
+
+    /**
+     * Largest power of two that keeps both sampled dimensions at or above the requested
+     * bounds, so the final scale is always a downscale. Returns 1 when the source already fits.
+     */
+    public static int calculateInSampleSize(int sourceWidth, int sourceHeight, int requestedWidth, int requestedHeight) {
+        if (sourceWidth <= 0 || sourceHeight <= 0 || requestedWidth <= 0 || requestedHeight <= 0) {
+            return 1;
+        }
+
+        int[] target = fitWithin(sourceWidth, sourceHeight, requestedWidth, requestedHeight);
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= target[0] && sourceHeight / (sampleSize * 2) >= target[1]) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scales {@code width x height} down, keeping the aspect ratio, until it fits inside
+     * {@code maxWidth x maxHeight}. Never scales up.
+     *
+     * @return {width, height}, each at least 1
+     */
+    public static int[] fitWithin(int width, int height, int maxWidth, int maxHeight) {
+        if (width <= 0 || height <= 0) {
+            return new int[]{0, 0};
+        }
+        if (width <= maxWidth && height <= maxHeight) {
+            return new int[]{width, height};
+        }
+
+        double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+        return new int[]{
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+}
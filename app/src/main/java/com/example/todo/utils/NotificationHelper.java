@@ -1,44 +1,99 @@
 package com.example.todo.utils;
 
 import android.app.AlarmManager;
+import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Build;
+import android.preference.PreferenceManager;
+import android.util.LruCache;
 
+import androidx.annotation.WorkerThread;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 
 import com.example.todo.R;
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.entities.DailyDigest;
 import com.example.todo.data.database.entities.Task;
 import com.example.todo.receivers.TaskNotificationReceiver;
 import com.example.todo.ui.main.MainActivity;
-
-
+import com.example.todo.viewmodel.SettingsViewModel;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Application-wide notification dispatcher. Obtain it with {@link #getInstance(Context)}.
+ *
+ * Channels are registered once per process and the system services are held for its
+ * lifetime. Each task keeps a builder template with its content and action PendingIntents
+ * already attached, so reposting a reminder only updates the text.
+ */
 public class NotificationHelper {
 
     public static final String CHANNEL_ID = "todo_task_notifications";
     public static final String CHANNEL_NAME = "Task Reminders";
     public static final String CHANNEL_DESCRIPTION = "Notifications for upcoming tasks";
+    private static final String CATEGORY_CHANNEL_PREFIX = "todo_category_";
 
     public static final String EXTRA_TASK_ID = "task_id";
     public static final String EXTRA_TASK_TITLE = "task_title";
     public static final String EXTRA_TASK_DESCRIPTION = "task_description";
+    public static final String EXTRA_TASK_IDS = "task_ids";
+
+    public static final String ACTION_COMPLETE_ALL = "ACTION_COMPLETE_ALL";
+    public static final String ACTION_DAILY_DIGEST = "com.example.todo.ACTION_DAILY_DIGEST";
+
+    public static final String GROUP_KEY = "todo_tasks";
+    public static final int SUMMARY_NOTIFICATION_ID = 999999;
+    public static final int DIGEST_NOTIFICATION_ID = 999998;
+    public static final int DAILY_DIGEST_NOTIFICATION_ID = 999997;
+    private static final int DAILY_DIGEST_REQUEST_CODE = 0x7A12;
+    private static final int MAX_SUMMARY_LINES = 6;
+    private static final int MAX_CACHED_TEMPLATES = 64;
+
+    private static volatile NotificationHelper INSTANCE;
 
     private final Context context;
     private final NotificationManager notificationManager;
+    private final NotificationManagerCompat notificationManagerCompat;
     private final AlarmManager alarmManager;
+    private final SharedPreferences settings;
+    private final ReminderScheduler reminderScheduler;
 
-    public NotificationHelper(Context context) {
+    private final LruCache<Integer, NotificationCompat.Builder> taskTemplates = new LruCache<>(MAX_CACHED_TEMPLATES);
+    private final Set<String> createdChannels = Collections.synchronizedSet(new HashSet<>());
+
+    private NotificationHelper(Context context) {
         this.context = context.getApplicationContext();
-        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        this.notificationManager = (NotificationManager) this.context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.notificationManagerCompat = NotificationManagerCompat.from(this.context);
+        this.alarmManager = (AlarmManager) this.context.getSystemService(Context.ALARM_SERVICE);
+        this.settings = PreferenceManager.getDefaultSharedPreferences(this.context);
+        this.reminderScheduler = new ReminderScheduler(this.context);
 
         createNotificationChannel();
     }
 
+    public static NotificationHelper getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (NotificationHelper.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new NotificationHelper(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -52,37 +107,40 @@ public class NotificationHelper {
 
             notificationManager.createNotificationChannel(channel);
         }
+        createdChannels.add(CHANNEL_ID);
     }
 
-    public void scheduleTaskNotification(Task task) {
-        if (!task.isNotificationEnabled() || task.isCompleted() || task.getCompletionTime() <= 0) {
-            return;
+    /**
+     * Returns the channel a task's reminders are posted to. With per-category channels
+     * turned on, each category gets its own channel the first time one of its tasks is posted.
+     */
+    private String getChannelId(String category) {
+        if (category == null || category.isEmpty()
+                || !settings.getBoolean(SettingsViewModel.PREF_CATEGORY_CHANNELS, false)) {
+            return CHANNEL_ID;
         }
 
-        long notificationTime = task.getCompletionTime() - (task.getNotificationMinutesBefore() * 60 * 1000L);
-        long currentTime = System.currentTimeMillis();
+        String channelId = CATEGORY_CHANNEL_PREFIX + category;
+        if (createdChannels.contains(channelId)) return channelId;
 
-        if (notificationTime <= currentTime) {
-            return;
-        }
-
-        Intent intent = new Intent(context, TaskNotificationReceiver.class);
-        intent.putExtra(EXTRA_TASK_ID, task.getId());
-        intent.putExtra(EXTRA_TASK_TITLE, task.getTitle());
-        intent.putExtra(EXTRA_TASK_DESCRIPTION, task.getDescription());
-
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                task.getId(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    channelId,
+                    category,
+                    NotificationManager.IMPORTANCE_DEFAULT
+            );
+            channel.setDescription("Reminders for " + category + " tasks");
+            channel.enableVibration(true);
+            channel.setShowBadge(true);
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, notificationTime, pendingIntent);
-        } else {
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, notificationTime, pendingIntent);
+            notificationManager.createNotificationChannel(channel);
         }
+        createdChannels.add(channelId);
+        return channelId;
+    }
+
+    public void scheduleTaskNotification(Task task) {
+        reminderScheduler.scheduleIfEarlier(task);
     }
 
     public void cancelTaskNotification(int taskId) {
@@ -98,12 +156,62 @@ public class NotificationHelper {
 
         notificationManager.cancel(taskId);
     }
-    public void updateTaskNotification(Task task) {
-        cancelTaskNotification(task.getId());
-        scheduleTaskNotification(task);
+    public void showTaskNotification(int taskId, String title, String description, long completionTime) {
+        showTaskNotification(taskId, title, description, completionTime, null, false);
     }
 
-    public void showTaskNotification(int taskId, String title, String description, long completionTime) {
+    public void showTaskNotification(Task task, boolean grouped) {
+        showTaskNotification(task.getId(), task.getTitle(), task.getDescription(), task.getCompletionTime(),
+                task.getCategory(), grouped);
+    }
+
+    public void showTaskNotification(int taskId, String title, String description, long completionTime,
+                                     String category, boolean grouped) {
+        String channelId = getChannelId(category);
+
+        Notification notification;
+        synchronized (taskTemplates) {
+            NotificationCompat.Builder builder = getTaskTemplate(taskId);
+            builder.setChannelId(channelId)
+                    .setContentTitle("Reminder: " + title)
+                    .setContentText(getNotificationText(description, completionTime))
+                    .setWhen(System.currentTimeMillis());
+
+            if (description != null && description.length() > 50) {
+                builder.setStyle(new NotificationCompat.BigTextStyle()
+                        .bigText(description)
+                        .setSummaryText("Until completion: " + DateUtils.getRelativeTimeString(completionTime)));
+            } else {
+                builder.setStyle(null);
+            }
+
+            if (grouped) {
+                // The summary alerts once for the whole burst; members stay silent.
+                builder.setGroup(GROUP_KEY)
+                        .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+            } else {
+                builder.setGroup(null)
+                        .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_ALL);
+            }
+
+            notification = builder.build();
+        }
+
+        try {
+            notificationManagerCompat.notify(taskId, notification);
+        } catch (SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builder with everything that does not change between posts for this task: icon,
+     * flags, the content intent and the Done/Postpone actions. Call with the cache locked.
+     */
+    private NotificationCompat.Builder getTaskTemplate(int taskId) {
+        NotificationCompat.Builder builder = taskTemplates.get(taskId);
+        if (builder != null) return builder;
+
         Intent contentIntent = new Intent(context, MainActivity.class);
         contentIntent.putExtra(EXTRA_TASK_ID, taskId);
         contentIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
@@ -115,30 +223,18 @@ public class NotificationHelper {
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
 
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+        builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_notification)
-                .setContentTitle("Reminder: " + title)
-                .setContentText(getNotificationText(description, completionTime))
                 .setPriority(NotificationCompat.PRIORITY_DEFAULT)
                 .setAutoCancel(true)
                 .setContentIntent(contentPendingIntent)
                 .setCategory(NotificationCompat.CATEGORY_REMINDER)
                 .setVisibility(NotificationCompat.VISIBILITY_PRIVATE);
 
-        if (description != null && description.length() > 50) {
-            builder.setStyle(new NotificationCompat.BigTextStyle()
-                    .bigText(description)
-                    .setSummaryText("Until completion: " + DateUtils.getRelativeTimeString(completionTime)));
-        }
-
         addNotificationActions(builder, taskId);
 
-        NotificationManagerCompat notificationManagerCompat = NotificationManagerCompat.from(context);
-        try {
-            notificationManagerCompat.notify(taskId, builder.build());
-        } catch (SecurityException e) {
-            e.printStackTrace();
-        }
+        taskTemplates.put(taskId, builder);
+        return builder;
     }
 
     private void addNotificationActions(NotificationCompat.Builder builder, int taskId) {
@@ -181,34 +277,192 @@ public class NotificationHelper {
         }
     }
 
-    public void showSummaryNotification(int activeNotificationsCount) {
-        if (activeNotificationsCount < 2) return;
+    public void showSummaryNotification(List<Task> tasks) {
+        if (tasks.size() < 2) return;
+
+        NotificationCompat.Builder builder = createTaskListBuilder(
+                tasks, tasks.size() + " tasks are due", SUMMARY_NOTIFICATION_ID)
+                .setContentTitle("Task reminders")
+                .setGroup(GROUP_KEY)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+
+        try {
+            notificationManagerCompat.notify(SUMMARY_NOTIFICATION_ID, builder.build());
+        } catch (SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Standalone notification listing reminders that were held during quiet hours or missed.
+     * It is not part of the group, since a group summary without children is not shown.
+     */
+    public void showDigestNotification(List<Task> tasks, boolean quietHours) {
+        if (tasks.isEmpty()) return;
+
+        String summaryText = quietHours
+                ? tasks.size() + " reminders during quiet hours"
+                : tasks.size() + " missed reminders";
+        NotificationCompat.Builder builder = createTaskListBuilder(tasks, summaryText, DIGEST_NOTIFICATION_ID)
+                .setContentTitle("While you were away");
+
+        try {
+            notificationManagerCompat.notify(DIGEST_NOTIFICATION_ID, builder.build());
+        } catch (SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private NotificationCompat.Builder createTaskListBuilder(List<Task> tasks, String summaryText, int requestCode) {
+        Intent contentIntent = new Intent(context, MainActivity.class);
+        contentIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+
+        PendingIntent contentPendingIntent = PendingIntent.getActivity(
+                context,
+                requestCode,
+                contentIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(summaryText);
+        int[] taskIds = new int[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            taskIds[i] = task.getId();
+            if (i < MAX_SUMMARY_LINES) {
+                inboxStyle.addLine(task.getTitle() + " • " + DateUtils.formatTime(task.getCompletionTime()));
+            }
+        }
+        if (tasks.size() > MAX_SUMMARY_LINES) {
+            inboxStyle.setSummaryText("+" + (tasks.size() - MAX_SUMMARY_LINES) + " more");
+        }
+
+        Intent completeAllIntent = new Intent(context, TaskNotificationReceiver.class);
+        completeAllIntent.setAction(ACTION_COMPLETE_ALL);
+        completeAllIntent.putExtra(EXTRA_TASK_IDS, taskIds);
+
+        PendingIntent completeAllPendingIntent = PendingIntent.getBroadcast(
+                context,
+                requestCode,
+                completeAllIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentText(summaryText)
+                .setStyle(inboxStyle)
+                .setNumber(tasks.size())
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setAutoCancel(true)
+                .setContentIntent(contentPendingIntent)
+                .addAction(R.drawable.ic_check, "Complete all", completeAllPendingIntent);
+    }
+
+    public void cancelSummaryNotification() {
+        notificationManager.cancel(SUMMARY_NOTIFICATION_ID);
+        notificationManager.cancel(DIGEST_NOTIFICATION_ID);
+    }
+
+    public boolean isDailyDigestEnabled() {
+        return settings.getBoolean(SettingsViewModel.PREF_DAILY_DIGEST_ENABLED, false);
+    }
+
+    /**
+     * Arms the one daily alarm for the next digest, or cancels it when digest mode is off.
+     * The alarm cost is the same whatever the number of tasks.
+     */
+    public void scheduleDailyDigest() {
+        PendingIntent pendingIntent = createDailyDigestIntent();
+        if (!isDailyDigestEnabled()) {
+            alarmManager.cancel(pendingIntent);
+            return;
+        }
+
+        int minuteOfDay = settings.getInt(SettingsViewModel.PREF_DAILY_DIGEST_TIME,
+                SettingsViewModel.DEFAULT_DAILY_DIGEST_TIME);
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        // A digest a few minutes late is fine, so let the system batch this wakeup.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, calendar.getTimeInMillis(), pendingIntent);
+        } else {
+            alarmManager.set(AlarmManager.RTC_WAKEUP, calendar.getTimeInMillis(), pendingIntent);
+        }
+    }
+
+    private PendingIntent createDailyDigestIntent() {
+        Intent intent = new Intent(context, TaskNotificationReceiver.class);
+        intent.setAction(ACTION_DAILY_DIGEST);
+
+        return PendingIntent.getBroadcast(
+                context,
+                DAILY_DIGEST_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    /**
+     * Posts the morning summary built from one aggregate query over the tasks table.
+     *
+     * @return false when there was nothing to report
+     */
+    @WorkerThread
+    public boolean showDailyDigest() {
+        long now = System.currentTimeMillis();
+        DailyDigest digest = AppDatabase.getInstance(context).taskDao()
+                .getDailyDigest(now, DateUtils.getEndOfDay(now), MAX_SUMMARY_LINES);
+        if (digest == null || digest.isEmpty()) return false;
+
+        String summaryText = digest.dueTodayCount + " due today, " + digest.overdueCount + " overdue";
+        NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(summaryText);
+        for (String line : digest.getUpcomingLines()) {
+            inboxStyle.addLine(line);
+        }
 
         Intent contentIntent = new Intent(context, MainActivity.class);
         contentIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
 
         PendingIntent contentPendingIntent = PendingIntent.getActivity(
                 context,
-                0,
+                DAILY_DIGEST_NOTIFICATION_ID,
                 contentIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
 
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_notification)
-                .setContentTitle("Task reminders")
-                .setContentText("You have " + activeNotificationsCount + " upcoming tasks")
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setGroup("todo_tasks")
-                .setGroupSummary(true)
+                .setContentTitle("Today's tasks")
+                .setContentText(summaryText)
+                .setStyle(inboxStyle)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
                 .setAutoCancel(true)
                 .setContentIntent(contentPendingIntent);
 
-        notificationManager.notify(999999, builder.build());
+        try {
+            notificationManagerCompat.notify(DAILY_DIGEST_NOTIFICATION_ID, builder.build());
+        } catch (SecurityException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
     }
 
     public boolean areNotificationsEnabled() {
-        NotificationManagerCompat notificationManagerCompat = NotificationManagerCompat.from(context);
         return notificationManagerCompat.areNotificationsEnabled();
     }
 
@@ -219,12 +473,4 @@ public class NotificationHelper {
     public int getActiveNotificationsCount() {
         return notificationManager.getActiveNotifications().length;
     }
-
-    public void rescheduleAllNotifications(java.util.List<Task> tasks) {
-        for (Task task : tasks) {
-            if (task.isNotificationEnabled() && !task.isCompleted()) {
-                scheduleTaskNotification(task);
-            }
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package com.example.todo.utils;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of a UTF-8 text file as a sequence of pages, backed by a memory mapping.
+ *
+ * Opening only maps the file, so it costs the same for any size; the kernel pages bytes in
+ * as they are touched. Page {@code i} nominally starts at {@code i * PAGE_BYTES} and is moved
+ * to the start of the next line, or, for very long lines, back to the start of a UTF-8
+ * character, so every page decodes on its own and no line is split across two pages unless
+ * it is longer than MAX_LINE_SCAN. Nothing is decoded until a page is asked for.
+ */
+public class PagedTextFile implements Closeable {
+
+    public static final int PAGE_BYTES = 16 * 1024;
+    private static final int MAX_LINE_SCAN = PAGE_BYTES / 2;
+    private static final int CANCEL_CHECK_BYTES = 64 * 1024;
+
+    public interface Cancellation {
+        boolean isCancelled();
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    public PagedTextFile(File source) throws IOException {
+        file = new RandomAccessFile(source, "r");
+        try {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to map: " + FileUtils.formatFileSize(length));
+            }
+            size = (int) length;
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (size + PAGE_BYTES - 1) / PAGE_BYTES);
+    }
+
+    public int getPageStart(int page) {
+        return boundary((long) page * PAGE_BYTES);
+    }
+
+    public int getPageEnd(int page) {
+        return boundary((long) (page + 1) * PAGE_BYTES);
+    }
+
+    /**
+     * @return the page holding the byte at {@code offset}
+     */
+    public int getPageOf(int offset) {
+        int page = Math.min(offset / PAGE_BYTES, getPageCount() - 1);
+        // Boundaries only move forward from the nominal offset, or back by less than a character.
+        while (page > 0 && getPageStart(page) > offset) page--;
+        while (page < getPageCount() - 1 && getPageEnd(page) <= offset) page++;
+        return page;
+    }
+
+    public String decodePage(int page) {
+        return decode(getPageStart(page), getPageEnd(page));
+    }
+
+    /**
+     * Decodes the bytes in {@code [start, end)}; both must be character boundaries.
+     */
+    public String decode(int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int boundary(long nominal) {
+        if (nominal <= 0) return 0;
+        if (nominal >= size) return size;
+
+        int offset = (int) nominal;
+        int scanEnd = Math.min(size, offset + MAX_LINE_SCAN);
+        for (int i = offset; i < scanEnd; i++) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        if (scanEnd == size) return size;
+
+        // No line break nearby: settle for a character boundary.
+        while (offset > 0 && (buffer.get(offset) & 0xC0) == 0x80) offset--;
+        return offset;
+    }
+
+    /**
+     * Finds the next occurrence of {@code query} at or after {@code from}, wrapping around to
+     * the start of the file once. ASCII letters match regardless of case.
+     *
+     * @return the byte offset of the match, or -1 if there is none or the search was cancelled
+     */
+    @WorkerThread
+    public int find(String query, int from, Cancellation cancellation) {
+        byte[] needle = query.getBytes(StandardCharsets.UTF_8);
+        if (needle.length == 0 || needle.length > size) return -1;
+        for (int i = 0; i < needle.length; i++) {
+            needle[i] = toLowerAscii(needle[i]);
+        }
+
+        int start = Math.max(0, Math.min(from, size));
+        int match = scan(needle, start, size, cancellation);
+        if (match == -1 && start > 0) {
+            match = scan(needle, 0, Math.min(size, start + needle.length - 1), cancellation);
+        }
+        return match;
+    }
+
+    private int scan(byte[] needle, int from, int to, Cancellation cancellation) {
+        int last = to - needle.length;
+        byte first = needle[0];
+        for (int i = from; i <= last; i++) {
+            if ((i - from) % CANCEL_CHECK_BYTES == 0 && cancellation.isCancelled()) return -1;
+            if (toLowerAscii(buffer.get(i)) != first) continue;
+
+            int j = 1;
+            while (j < needle.length && toLowerAscii(buffer.get(i + j)) == needle[j]) j++;
+            if (j == needle.length) return i;
+        }
+        return -1;
+    }
+
+    private static byte toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is collected.
+        file.close();
+    }
+}
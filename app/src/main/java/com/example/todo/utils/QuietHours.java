@@ -0,0 +1,112 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.example.todo.viewmodel.SettingsViewModel;
+
+import java.util.Calendar;
+
+/**
+ * Resolves the daily quiet-hours window configured in {@link SettingsViewModel}.
+ *
+ * The window is stored as minutes of the local day and may wrap past midnight
+ * (22:00 - 07:00). A start equal to the end means there is no window.
+ */
+public class QuietHours {
+
+    private final SharedPreferences settings;
+
+    public QuietHours(Context context) {
+        this.settings = PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
+    }
+
+    public boolean isEnabled() {
+        return settings.getBoolean(SettingsViewModel.PREF_QUIET_HOURS_ENABLED, false)
+                && getStartMinutes() != getEndMinutes();
+    }
+
+    private int getStartMinutes() {
+        return settings.getInt(SettingsViewModel.PREF_QUIET_HOURS_START, SettingsViewModel.DEFAULT_QUIET_HOURS_START);
+    }
+
+    private int getEndMinutes() {
+        return settings.getInt(SettingsViewModel.PREF_QUIET_HOURS_END, SettingsViewModel.DEFAULT_QUIET_HOURS_END);
+    }
+
+    /**
+     * @return the start of the quiet window containing {@code time}, or 0 if it is outside one
+     */
+    public long getWindowStart(long time) {
+        if (!isEnabled()) return 0;
+
+        int start = getStartMinutes();
+        int end = getEndMinutes();
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+
+        boolean inside;
+        if (start < end) {
+            inside = minuteOfDay >= start && minuteOfDay < end;
+        } else {
+            inside = minuteOfDay >= start || minuteOfDay < end;
+            if (inside && minuteOfDay < start) {
+                calendar.add(Calendar.DAY_OF_MONTH, -1);
+            }
+        }
+        if (!inside) return 0;
+
+        setMinuteOfDay(calendar, start);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @return the end of the quiet window containing {@code time}, or 0 if it is outside one
+     */
+    public long getWindowEnd(long time) {
+        long windowStart = getWindowStart(time);
+        if (windowStart == 0) return 0;
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(windowStart);
+        if (getEndMinutes() < getStartMinutes()) {
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        setMinuteOfDay(calendar, getEndMinutes());
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @return the end of the latest quiet window that closed at or before {@code time}, or 0
+     *         if quiet hours are off
+     */
+    public long getLastWindowEnd(long time) {
+        if (!isEnabled()) return 0;
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        setMinuteOfDay(calendar, getEndMinutes());
+        if (calendar.getTimeInMillis() > time) {
+            calendar.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @return when a reminder due at {@code fireTime} may actually be delivered
+     */
+    public long getDeliveryTime(long fireTime) {
+        long windowEnd = getWindowEnd(fireTime);
+        return windowEnd != 0 ? windowEnd : fireTime;
+    }
+
+    private static void setMinuteOfDay(Calendar calendar, int minuteOfDay) {
+        calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.entities.Task;
+
+import java.util.List;
+
+/**
+ * Posts a burst of due reminders as one notification group.
+ *
+ * A single reminder is posted on its own. Two or more get one summary (which carries
+ * the "Complete all" action and is the only one that alerts) followed by individual
+ * notifications, paced and capped so the system's per-app notify rate limit never
+ * drops them. Reminders beyond the cap are still listed in the summary.
+ */
+public class ReminderBatchDispatcher {
+
+    public static final int MAX_INDIVIDUAL_POSTS = 8;
+    private static final long MIN_POST_INTERVAL_MS = 250;
+
+    private static long lastPostUptime;
+
+    private final NotificationHelper notificationHelper;
+
+    public ReminderBatchDispatcher(Context context) {
+        this.notificationHelper = NotificationHelper.getInstance(context);
+    }
+
+    /**
+     * @return the number of notifications posted
+     */
+    @WorkerThread
+    public int dispatch(List<Task> dueTasks) {
+        if (dueTasks.isEmpty()) return 0;
+
+        if (dueTasks.size() == 1) {
+            awaitPostSlot();
+            notificationHelper.showTaskNotification(dueTasks.get(0), false);
+            return 1;
+        }
+
+        awaitPostSlot();
+        notificationHelper.showSummaryNotification(dueTasks);
+        int posted = 1;
+
+        int individual = Math.min(dueTasks.size(), MAX_INDIVIDUAL_POSTS);
+        for (int i = 0; i < individual; i++) {
+            if (!awaitPostSlot()) break;
+
+            notificationHelper.showTaskNotification(dueTasks.get(i), true);
+            posted++;
+        }
+        return posted;
+    }
+
+    /**
+     * Posts reminders that could not go out on time, held back by quiet hours or missed
+     * while the device slept or was off, as a single digest notification.
+     *
+     * @return the number of notifications posted
+     */
+    @WorkerThread
+    public int dispatchDigest(List<Task> heldTasks, boolean quietHours) {
+        if (heldTasks.isEmpty()) return 0;
+
+        awaitPostSlot();
+        if (heldTasks.size() == 1) {
+            notificationHelper.showTaskNotification(heldTasks.get(0), false);
+        } else {
+            notificationHelper.showDigestNotification(heldTasks, quietHours);
+        }
+        return 1;
+    }
+
+    private static boolean awaitPostSlot() {
+        long wait;
+        synchronized (ReminderBatchDispatcher.class) {
+            long now = SystemClock.uptimeMillis();
+            long slot = Math.max(now, lastPostUptime + MIN_POST_INTERVAL_MS);
+            lastPostUptime = slot;
+            wait = slot - now;
+        }
+
+        if (wait <= 0) return true;
+        try {
+            Thread.sleep(wait);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.todo.utils;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.ReminderDao;
+import com.example.todo.data.database.dao.ScheduledReminderDao;
+import com.example.todo.data.database.entities.PendingReminder;
+import com.example.todo.data.database.entities.ScheduledReminder;
+import com.example.todo.data.database.entities.Task;
+import com.example.todo.receivers.TaskNotificationReceiver;
+import com.example.todo.viewmodel.SettingsViewModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a single AlarmManager alarm armed for the earliest pending row in the
+ * {@code reminders} table.
+ *
+ * When the alarm fires, every reminder already due is posted in one pass and the alarm is
+ * re-armed for the next one; no reminder is ever posted before its time. To group bursts, a
+ * due reminder is held while another falls within the grouping window
+ * ({@link SettingsViewModel#PREF_REMINDER_BATCH_WINDOW}, at most MAX_HOLD_MS) after it,
+ * so both go out when the later one fires. The dispatch watermark is persisted so a
+ * reminder is never posted twice.
+ *
+ * Reminders that fall inside {@link QuietHours} are held rather than posted: the alarm is
+ * armed for the end of the window instead of for each of them, and everything past the
+ * watermark is then released as one digest. The held set needs no storage of its own, it is
+ * the reminders table between the persisted watermark and the window end.
+ *
+ * A ledger of pending reminders (reminder id, task id, fire time, payload hash) is kept in the
+ * {@code scheduled_reminders} table so that edits and boot-time passes can diff
+ * against what is already scheduled and only touch the alarm when the head changes.
+ */
+public class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    public static final String ACTION_REMINDER_ALARM = "com.example.todo.ACTION_REMINDER_ALARM";
+
+    private static final long LATE_TOLERANCE_MS = 10 * 60 * 1000L;
+    private static final long MAX_HOLD_MS = 60 * 1000L;
+
+    private static final String PREFS_NAME = "reminder_scheduler";
+    private static final String KEY_ARMED_TIME = "armed_time";
+    private static final String KEY_DISPATCHED_UNTIL = "dispatched_until";
+    private static final int ALARM_REQUEST_CODE = 0x7A11;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final SharedPreferences preferences;
+    private final SharedPreferences settings;
+    private final QuietHours quietHours;
+
+    public ReminderScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = (AlarmManager) this.context.getSystemService(Context.ALARM_SERVICE);
+        this.preferences = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.settings = PreferenceManager.getDefaultSharedPreferences(this.context);
+        this.quietHours = new QuietHours(this.context);
+    }
+
+    private long getHoldMs() {
+        int seconds = settings.getInt(SettingsViewModel.PREF_REMINDER_BATCH_WINDOW,
+                SettingsViewModel.DEFAULT_REMINDER_BATCH_WINDOW);
+        return Math.min(MAX_HOLD_MS, Math.max(0, seconds) * 1000L);
+    }
+
+    /**
+     * Reminders at or before this time are either dispatched or no longer worth posting.
+     * Inside quiet hours the floor drops back to the window start so held reminders keep
+     * the release alarm armed.
+     */
+    private long getScheduleFloor() {
+        long now = System.currentTimeMillis();
+        long quietStart = quietHours.getWindowStart(now);
+        if (quietStart != 0) {
+            return Math.max(getDispatchedUntil(), quietStart);
+        }
+        return Math.max(now, getDispatchedUntil());
+    }
+
+    private static Map<Integer, ScheduledReminder> toLedgerMap(List<ScheduledReminder> entries) {
+        Map<Integer, ScheduledReminder> map = new HashMap<>();
+        for (ScheduledReminder entry : entries) {
+            map.put(entry.getReminderId(), entry);
+        }
+        return map;
+    }
+
+    /**
+     * Brings the ledger and the armed alarm in line with the reminders of a single
+     * edited, completed or deleted task. Call it after the task and its reminder rows
+     * have been written.
+     *
+     * @return the number of alarm operations issued, 0 when nothing relevant changed
+     */
+    @WorkerThread
+    public int onTaskChanged(int taskId) {
+        AppDatabase database = AppDatabase.getInstance(context);
+        ScheduledReminderDao ledgerDao = database.scheduledReminderDao();
+
+        long after = getScheduleFloor();
+        Map<Integer, ScheduledReminder> existing = toLedgerMap(ledgerDao.getByTaskId(taskId));
+
+        List<ScheduledReminder> desired = new ArrayList<>();
+        boolean changed = false;
+        long earliestDesired = Long.MAX_VALUE;
+        for (PendingReminder reminder : database.reminderDao().getPendingRemindersForTask(taskId, after)) {
+            ScheduledReminder entry = reminder.toLedgerEntry();
+            desired.add(entry);
+            earliestDesired = Math.min(earliestDesired, entry.getFireTime());
+            changed |= !entry.isSameAs(existing.get(entry.getReminderId()));
+        }
+        changed |= desired.size() != existing.size();
+
+        if (!changed) return 0;
+
+        database.runInTransaction(() -> {
+            ledgerDao.deleteByTaskId(taskId);
+            if (!desired.isEmpty()) ledgerDao.upsertAll(desired);
+        });
+
+        int touched = 0;
+        synchronized (ReminderScheduler.class) {
+            long armedTime = preferences.getLong(KEY_ARMED_TIME, 0);
+            boolean armedIsStale = armedTime <= System.currentTimeMillis();
+            boolean ownedHead = false;
+            for (ScheduledReminder entry : existing.values()) {
+                ownedHead |= entry.getFireTime() == armedTime;
+            }
+
+            if (earliestDesired != Long.MAX_VALUE && (armedIsStale || earliestDesired < armedTime)) {
+                arm(earliestDesired);
+                touched = 1;
+            } else if (ownedHead && earliestDesired != armedTime) {
+                touched = rescheduleNextLocked(database.reminderDao(), after);
+            }
+        }
+
+        Log.d(TAG, "Task " + taskId + " changed, alarms touched: " + touched);
+        return touched;
+    }
+
+    /**
+     * Alarms do not survive a reboot, so forget the armed time before reconciling.
+     */
+    @WorkerThread
+    public int onBoot() {
+        synchronized (ReminderScheduler.class) {
+            preferences.edit().remove(KEY_ARMED_TIME).apply();
+        }
+        return reconcile();
+    }
+
+    /**
+     * Full pass used at boot: diffs every pending reminder against the ledger, writes
+     * only the entries that changed and re-arms only if the head reminder moved.
+     *
+     * @return the number of alarm operations issued
+     */
+    @WorkerThread
+    public int reconcile() {
+        AppDatabase database = AppDatabase.getInstance(context);
+        ScheduledReminderDao ledgerDao = database.scheduledReminderDao();
+
+        long after = getScheduleFloor();
+        List<PendingReminder> pending = database.reminderDao().getPendingReminders(after);
+        Map<Integer, ScheduledReminder> ledger = toLedgerMap(ledgerDao.getAll());
+
+        List<ScheduledReminder> changed = new ArrayList<>();
+        long head = Long.MAX_VALUE;
+        for (PendingReminder reminder : pending) {
+            ScheduledReminder desired = reminder.toLedgerEntry();
+            if (!desired.isSameAs(ledger.remove(desired.getReminderId()))) {
+                changed.add(desired);
+            }
+            head = Math.min(head, desired.getFireTime());
+        }
+        List<Integer> removed = new ArrayList<>(ledger.keySet());
+
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            database.runInTransaction(() -> {
+                if (!changed.isEmpty()) ledgerDao.upsertAll(changed);
+                if (!removed.isEmpty()) ledgerDao.deleteByReminderIds(removed);
+            });
+        }
+
+        int touched = 0;
+        synchronized (ReminderScheduler.class) {
+            long armedTime = preferences.getLong(KEY_ARMED_TIME, 0);
+            if (head == Long.MAX_VALUE) {
+                if (armedTime != 0) {
+                    disarm();
+                    touched = 1;
+                }
+            } else if (head != armedTime) {
+                arm(head);
+                touched = 1;
+            }
+        }
+
+        Log.d(TAG, "Reconciled " + pending.size() + " reminders: " + changed.size() + " changed, "
+                + removed.size() + " removed, alarms touched: " + touched);
+        return touched;
+    }
+
+    /**
+     * Arms the alarm for this task's earliest reminder if it fires before whatever is
+     * currently armed. Needs no database access, so it is safe to call right after a write.
+     */
+    public void scheduleIfEarlier(Task task) {
+        long notificationTime = task.getNotificationTime();
+        if (notificationTime <= getScheduleFloor()) {
+            return;
+        }
+
+        synchronized (ReminderScheduler.class) {
+            long armedTime = preferences.getLong(KEY_ARMED_TIME, 0);
+            if (armedTime <= System.currentTimeMillis() || notificationTime < armedTime) {
+                arm(notificationTime);
+            }
+        }
+    }
+
+    @WorkerThread
+    public void rescheduleNext() {
+        ReminderDao reminderDao = AppDatabase.getInstance(context).reminderDao();
+        long after = getScheduleFloor();
+
+        synchronized (ReminderScheduler.class) {
+            rescheduleNextLocked(reminderDao, after);
+        }
+    }
+
+    private int rescheduleNextLocked(ReminderDao reminderDao, long after) {
+        Long next = reminderDao.getNextFireTime(after);
+        if (next == null) {
+            disarm();
+        } else {
+            arm(next);
+        }
+        return 1;
+    }
+
+    /**
+     * Posts every reminder due in the current window and returns how many tasks were notified.
+     * Inside quiet hours nothing is posted; right after them the held reminders go out as a digest.
+     * Reminders whose alarm came more than LATE_TOLERANCE_MS late (Doze, the device being off)
+     * are not dropped but rolled into a digest of missed reminders.
+     */
+    @WorkerThread
+    public int dispatchDue() {
+        long now = System.currentTimeMillis();
+        if (quietHours.getWindowStart(now) != 0) {
+            Log.d(TAG, "Quiet hours, holding reminders until " + quietHours.getWindowEnd(now));
+            return 0;
+        }
+
+        AppDatabase database = AppDatabase.getInstance(context);
+        long from = getDispatchedUntil();
+        if (from == 0) {
+            // Nothing dispatched yet; anything older was handled before this scheduler existed.
+            from = now - LATE_TOLERANCE_MS;
+        }
+        long until = now;
+
+        // Hold the first due reminder while another follows within the grouping window; the
+        // alarm re-armed for that one posts both.
+        Long firstDue = database.reminderDao().getNextFireTime(from);
+        Long next = database.reminderDao().getNextFireTime(now);
+        if (firstDue != null && firstDue <= now && next != null && next <= firstDue + getHoldMs()) {
+            Log.d(TAG, "Holding due reminders to group them with the one at " + next);
+            return 0;
+        }
+
+        // The watermark stands still during quiet hours, so whatever lies between it and the end
+        // of the last window was held, however late this alarm arrives after the window closed.
+        long digestUntil = now - LATE_TOLERANCE_MS;
+        boolean held = false;
+        long lastQuietEnd = quietHours.getLastWindowEnd(now);
+        if (lastQuietEnd > from) {
+            Long firstHeld = database.reminderDao().getNextFireTime(from);
+            if (firstHeld != null && firstHeld <= lastQuietEnd) {
+                held = true;
+                digestUntil = Math.max(digestUntil, lastQuietEnd);
+            }
+        }
+
+        List<Task> digestTasks = digestUntil > from
+                ? database.reminderDao().getTasksWithRemindersBetween(from, digestUntil)
+                : new ArrayList<>();
+        List<Task> dueTasks = database.reminderDao().getTasksWithRemindersBetween(Math.max(from, digestUntil), until);
+        Set<Integer> inDigest = new HashSet<>();
+        for (Task task : digestTasks) {
+            inDigest.add(task.getId());
+        }
+        Iterator<Task> iterator = dueTasks.iterator();
+        while (iterator.hasNext()) {
+            if (inDigest.contains(iterator.next().getId())) {
+                iterator.remove();
+            }
+        }
+
+        // Advance the watermark before posting so a deadline hit mid-batch never re-posts it.
+        preferences.edit().putLong(KEY_DISPATCHED_UNTIL, until).apply();
+        database.scheduledReminderDao().deleteFiringBetween(from, until);
+
+        ReminderBatchDispatcher dispatcher = new ReminderBatchDispatcher(context);
+        dispatcher.dispatchDigest(digestTasks, held);
+        dispatcher.dispatch(dueTasks);
+        return digestTasks.size() + dueTasks.size();
+    }
+
+    private long getDispatchedUntil() {
+        return preferences.getLong(KEY_DISPATCHED_UNTIL, 0);
+    }
+
+    /**
+     * Arms the alarm for the reminder due at {@code fireTime}. The armed time is recorded as
+     * the reminder time; the trigger itself is moved to the end of any quiet window.
+     */
+    private void arm(long fireTime) {
+        if (settings.getBoolean(SettingsViewModel.PREF_DAILY_DIGEST_ENABLED, false)) {
+            // Digest mode replaces per-reminder alarms with the single daily one.
+            disarm();
+            return;
+        }
+
+        PendingIntent pendingIntent = createAlarmIntent();
+
+        long triggerAtMillis = quietHours.getDeliveryTime(fireTime);
+        long quietEnd = quietHours.getWindowEnd(System.currentTimeMillis());
+        if (quietEnd != 0) {
+            triggerAtMillis = Math.min(triggerAtMillis, quietEnd);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        }
+
+        preferences.edit().putLong(KEY_ARMED_TIME, fireTime).apply();
+    }
+
+    private void disarm() {
+        alarmManager.cancel(createAlarmIntent());
+        preferences.edit().remove(KEY_ARMED_TIME).apply();
+    }
+
+    private PendingIntent createAlarmIntent() {
+        Intent intent = new Intent(context, TaskNotificationReceiver.class);
+        intent.setAction(ACTION_REMINDER_ALARM);
+
+        return PendingIntent.getBroadcast(
+                context,
+                ALARM_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
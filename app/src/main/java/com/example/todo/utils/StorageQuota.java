@@ -0,0 +1,88 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.dao.StorageUsageDao;
+import com.example.todo.data.database.entities.StorageUsage;
+import com.example.todo.viewmodel.SettingsViewModel;
+
+import java.io.IOException;
+
+/**
+ * Decides whether an import still fits the attachment storage limit set in
+ * {@link SettingsViewModel}. Usage comes from the database counters, so a check never
+ * touches the filesystem.
+ */
+public class StorageQuota {
+
+    public enum Decision {
+        ALLOW,
+        WARN,
+        REJECT
+    }
+
+    public static class QuotaExceededException extends IOException {
+        public QuotaExceededException(long usedBytes, long quotaBytes) {
+            super("Storage limit reached: " + FileUtils.formatFileSize(usedBytes)
+                    + " of " + FileUtils.formatFileSize(quotaBytes) + " used");
+        }
+    }
+
+    private static final long BYTES_PER_MB = 1024L * 1024;
+    private static final double WARN_RATIO = 0.9;
+
+    private final SharedPreferences settings;
+    private final StorageUsageDao usageDao;
+
+    public StorageQuota(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.settings = PreferenceManager.getDefaultSharedPreferences(appContext);
+        this.usageDao = AppDatabase.getInstance(appContext).storageUsageDao();
+    }
+
+    /**
+     * @return the limit in bytes, or 0 when storage is not limited
+     */
+    public long getQuotaBytes() {
+        return settings.getInt(SettingsViewModel.PREF_STORAGE_QUOTA_MB, SettingsViewModel.DEFAULT_STORAGE_QUOTA_MB) * BYTES_PER_MB;
+    }
+
+    @WorkerThread
+    public long getUsedBytes() {
+        StorageUsage stored = usageDao.get(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL);
+        return stored != null ? stored.getBytes() : 0;
+    }
+
+    /**
+     * @param incomingBytes bytes the import adds on disk; unknown sizes should pass 0
+     */
+    @WorkerThread
+    public Decision check(long incomingBytes) {
+        long quota = getQuotaBytes();
+        if (quota <= 0) return Decision.ALLOW;
+
+        long after = getUsedBytes() + Math.max(0, incomingBytes);
+        if (after > quota) return Decision.REJECT;
+        if (after > quota * WARN_RATIO) return Decision.WARN;
+        return Decision.ALLOW;
+    }
+
+    /**
+     * Like {@link #check} but throws on {@link Decision#REJECT}.
+     *
+     * @return true when the import is allowed but close to the limit
+     */
+    @WorkerThread
+    public boolean enforce(long incomingBytes) throws QuotaExceededException {
+        Decision decision = check(incomingBytes);
+        if (decision == Decision.REJECT) {
+            throw new QuotaExceededException(getUsedBytes(), getQuotaBytes());
+        }
+        return decision == Decision.WARN;
+    }
+}
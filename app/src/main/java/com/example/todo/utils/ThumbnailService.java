@@ -0,0 +1,377 @@
+package com.example.todo.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates attachment thumbnails once and serves them from two cache levels.
+ *
+ * Thumbnails are aspect-correct, fit inside a square of the requested size and are
+ * keyed by attachment id and size. Decoded bitmaps live in a memory LRU sized from the
+ * heap; encoded JPEGs live in a size-capped disk LRU under
+ * {@code attachments/images/thumbnails}, ordered by last access time.
+ */
+public class ThumbnailService {
+
+    private static final String TAG = "ThumbnailService";
+
+    public static final String THUMBNAILS_DIR = "thumbnails";
+    private static final String FILE_PREFIX = "thumb_";
+    private static final String FILE_SUFFIX = ".jpg";
+    private static final long MAX_DISK_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES = 32 * 1024 * 1024;
+    private static final int JPEG_QUALITY = 80;
+    private static final int LIST_THUMBNAIL_DP = 48;
+
+    public interface Callback {
+        void onThumbnailLoaded(int attachmentId, @Nullable Bitmap thumbnail);
+    }
+
+    /**
+     * Handle for a pending load. Cancelling drops the callback; the decode itself is
+     * interrupted once no other request is waiting for it.
+     */
+    public static class Request {
+        private final Callback callback;
+        private volatile boolean cancelled;
+        private Decode decode;
+
+        Request(Callback callback) {
+            this.callback = callback;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            Decode pending = decode;
+            if (pending != null) {
+                pending.release(this);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * One decode of a thumbnail, shared by every request for the same attachment and size
+     * made while it runs, so a prefetched tile that scrolls into view is not decoded twice.
+     */
+    private class Decode implements Runnable {
+        private final String key;
+        private final int attachmentId;
+        private final String filePath;
+        private final String fileType;
+        private final int sizePx;
+        // Guarded by inFlight, as is future.
+        private final List<Request> requests = new ArrayList<>();
+        private Future<?> future;
+
+        Decode(String key, int attachmentId, String filePath, String fileType, int sizePx) {
+            this.key = key;
+            this.attachmentId = attachmentId;
+            this.filePath = filePath;
+            this.fileType = fileType;
+            this.sizePx = sizePx;
+        }
+
+        @Override
+        public void run() {
+            Bitmap thumbnail = loadSync(attachmentId, filePath, fileType, sizePx);
+
+            List<Request> waiting;
+            synchronized (inFlight) {
+                if (inFlight.get(key) == this) {
+                    inFlight.remove(key);
+                }
+                waiting = new ArrayList<>(requests);
+                requests.clear();
+            }
+            if (waiting.isEmpty()) return;
+
+            mainHandler.post(() -> {
+                for (Request request : waiting) {
+                    if (!request.isCancelled()) {
+                        request.callback.onThumbnailLoaded(attachmentId, thumbnail);
+                    }
+                }
+            });
+        }
+
+        void release(Request request) {
+            Future<?> abandoned;
+            synchronized (inFlight) {
+                if (!requests.remove(request) || !requests.isEmpty()) return;
+                if (inFlight.get(key) == this) {
+                    inFlight.remove(key);
+                }
+                abandoned = future;
+            }
+            abandoned.cancel(true);
+        }
+    }
+
+    private static volatile ThumbnailService INSTANCE;
+
+    private final Context context;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Decode> inFlight = new HashMap<>();
+    private final Object diskLock = new Object();
+    private long diskBytes = -1;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private ThumbnailService(Context context) {
+        this.context = context.getApplicationContext();
+
+        int memoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_MEMORY_BYTES);
+        this.memoryCache = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "thumbnail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static ThumbnailService getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ThumbnailService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ThumbnailService(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Edge length, in pixels, of the thumbnails shown next to attachment names in lists.
+     */
+    public static int getListThumbnailSize(Context context) {
+        return (int) (LIST_THUMBNAIL_DP * context.getResources().getDisplayMetrics().density);
+    }
+
+    private static String key(int attachmentId, int sizePx) {
+        return attachmentId + ":" + sizePx;
+    }
+
+    private File getThumbnailsDirectory() {
+        File dir = new File(FileUtils.createImagesDirectory(context), THUMBNAILS_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    private File getThumbnailFile(int attachmentId, int sizePx) {
+        return new File(getThumbnailsDirectory(), FILE_PREFIX + attachmentId + "_" + sizePx + FILE_SUFFIX);
+    }
+
+    /**
+     * Memory-only lookup, safe to call while binding a view.
+     */
+    @Nullable
+    public Bitmap getCached(int attachmentId, int sizePx) {
+        Bitmap bitmap = memoryCache.get(key(attachmentId, sizePx));
+        if (bitmap != null) {
+            memoryHits.incrementAndGet();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Loads a thumbnail for an image attachment. The callback runs on the main thread, with
+     * null when the attachment was not classified as an image or cannot be decoded. Memory hits are delivered
+     * synchronously; a request for a thumbnail that is already being decoded waits for that
+     * decode instead of starting another.
+     */
+    public Request load(int attachmentId, String filePath, String fileType, int sizePx, Callback callback) {
+        Request request = new Request(callback);
+
+        Bitmap cached = getCached(attachmentId, sizePx);
+        if (cached != null) {
+            callback.onThumbnailLoaded(attachmentId, cached);
+            return request;
+        }
+
+        String key = key(attachmentId, sizePx);
+        synchronized (inFlight) {
+            Decode decode = inFlight.get(key);
+            if (decode == null) {
+                decode = new Decode(key, attachmentId, filePath, fileType, sizePx);
+                inFlight.put(key, decode);
+                decode.future = executor.submit(decode);
+            }
+            decode.requests.add(request);
+            request.decode = decode;
+        }
+        return request;
+    }
+
+    @WorkerThread
+    @Nullable
+    public Bitmap loadSync(int attachmentId, String filePath, String fileType, int sizePx) {
+        String key = key(attachmentId, sizePx);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            memoryHits.incrementAndGet();
+            return bitmap;
+        }
+
+        File thumbnailFile = getThumbnailFile(attachmentId, sizePx);
+        if (thumbnailFile.exists()) {
+            bitmap = BitmapFactory.decodeFile(thumbnailFile.getAbsolutePath());
+            if (bitmap != null) {
+                diskHits.incrementAndGet();
+                thumbnailFile.setLastModified(System.currentTimeMillis());
+                memoryCache.put(key, bitmap);
+                return bitmap;
+            }
+        }
+
+        misses.incrementAndGet();
+        // The type comes from the file's content at import; a name alone can claim anything.
+        if (filePath == null || !FileTypeClassifier.TYPE_IMAGE.equals(fileType)) return null;
+
+        bitmap = FileUtils.decodeSampledBitmap(filePath, sizePx, sizePx);
+        if (bitmap == null) return null;
+
+        memoryCache.put(key, bitmap);
+        writeToDisk(thumbnailFile, bitmap);
+        return bitmap;
+    }
+
+    private void writeToDisk(File thumbnailFile, Bitmap bitmap) {
+        File tempFile = new File(thumbnailFile.getParentFile(), thumbnailFile.getName() + ".tmp");
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write thumbnail " + thumbnailFile.getName(), e);
+            tempFile.delete();
+            return;
+        }
+
+        synchronized (diskLock) {
+            long previous = thumbnailFile.length();
+            if (!tempFile.renameTo(thumbnailFile)) {
+                tempFile.delete();
+                return;
+            }
+            if (diskBytes >= 0) {
+                diskBytes += thumbnailFile.length() - previous;
+            }
+            trimDiskCacheLocked();
+        }
+    }
+
+    private void trimDiskCacheLocked() {
+        // The running total makes listing the directory unnecessary until it is first needed
+        // or the cap is exceeded.
+        if (diskBytes >= 0 && diskBytes <= MAX_DISK_BYTES) return;
+
+        File[] files = getThumbnailsDirectory().listFiles((dir, name) -> name.startsWith(FILE_PREFIX));
+        if (files == null) return;
+
+        if (diskBytes < 0) {
+            diskBytes = 0;
+            for (File file : files) {
+                diskBytes += file.length();
+            }
+            if (diskBytes <= MAX_DISK_BYTES) return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (diskBytes <= MAX_DISK_BYTES * 3 / 4) break;
+            long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    /**
+     * Drops every cached size of an attachment's thumbnail. Call when the attachment is deleted.
+     */
+    public void invalidate(int attachmentId) {
+        String keyPrefix = attachmentId + ":";
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(keyPrefix)) {
+                memoryCache.remove(key);
+            }
+        }
+
+        String filePrefix = FILE_PREFIX + attachmentId + "_";
+        synchronized (diskLock) {
+            File[] files = getThumbnailsDirectory().listFiles((dir, name) -> name.startsWith(filePrefix));
+            if (files == null) return;
+            for (File file : files) {
+                long length = file.length();
+                if (file.delete() && diskBytes >= 0) {
+                    diskBytes -= length;
+                }
+            }
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the share of lookups served from either cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public String getStats() {
+        return "memory hits: " + memoryHits.get() + ", disk hits: " + diskHits.get()
+                + ", misses: " + misses.get() + ", memory: " + memoryCache.size() + "/" + memoryCache.maxSize() + " bytes";
+    }
+}
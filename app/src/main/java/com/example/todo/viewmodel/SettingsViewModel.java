@@ -6,10 +6,18 @@ import android.preference.PreferenceManager;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.todo.data.database.AppDatabase;
+import com.example.todo.data.database.entities.StorageUsage;
+import com.example.todo.utils.NotificationHelper;
+import com.example.todo.utils.ReminderScheduler;
+
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SettingsViewModel extends AndroidViewModel {
 
@@ -19,13 +27,27 @@ public class SettingsViewModel extends AndroidViewModel {
     public static final String PREF_DEFAULT_CATEGORY = "default_category";
     public static final String PREF_THEME_MODE = "theme_mode";
     public static final String PREF_SORT_ORDER = "sort_order";
+    public static final String PREF_REMINDER_BATCH_WINDOW = "reminder_batch_window_seconds";
+    public static final String PREF_QUIET_HOURS_ENABLED = "quiet_hours_enabled";
+    public static final String PREF_QUIET_HOURS_START = "quiet_hours_start";
+    public static final String PREF_QUIET_HOURS_END = "quiet_hours_end";
+    public static final String PREF_DAILY_DIGEST_ENABLED = "daily_digest_enabled";
+    public static final String PREF_DAILY_DIGEST_TIME = "daily_digest_time";
+    public static final String PREF_CATEGORY_CHANNELS = "category_channels";
+    public static final String PREF_STORAGE_QUOTA_MB = "storage_quota_mb";
 
     public static final int DEFAULT_NOTIFICATION_TIME = 15;
     public static final String DEFAULT_CATEGORY = "General";
     public static final String DEFAULT_THEME = "system";
     public static final String DEFAULT_SORT_ORDER = "due_time";
+    public static final int DEFAULT_REMINDER_BATCH_WINDOW = 60;
+    public static final int DEFAULT_QUIET_HOURS_START = 22 * 60;
+    public static final int DEFAULT_QUIET_HOURS_END = 7 * 60;
+    public static final int DEFAULT_DAILY_DIGEST_TIME = 8 * 60;
+    public static final int DEFAULT_STORAGE_QUOTA_MB = 0;
 
     private final SharedPreferences sharedPreferences;
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 
     private final MutableLiveData<Boolean> hideCompletedTasks = new MutableLiveData<>();
     private final MutableLiveData<Integer> notificationTimeMinutes = new MutableLiveData<>();
@@ -33,10 +55,21 @@ public class SettingsViewModel extends AndroidViewModel {
     private final MutableLiveData<String> defaultCategory = new MutableLiveData<>();
     private final MutableLiveData<String> themeMode = new MutableLiveData<>();
     private final MutableLiveData<String> sortOrder = new MutableLiveData<>();
+    private final MutableLiveData<Integer> reminderBatchWindowSeconds = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> quietHoursEnabled = new MutableLiveData<>();
+    private final MutableLiveData<Integer> quietHoursStart = new MutableLiveData<>();
+    private final MutableLiveData<Integer> quietHoursEnd = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> dailyDigestEnabled = new MutableLiveData<>();
+    private final MutableLiveData<Integer> dailyDigestTime = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> categoryChannels = new MutableLiveData<>();
+    private final MutableLiveData<Integer> storageQuotaMb = new MutableLiveData<>();
+    private final LiveData<StorageUsage> storedUsage;
 
     public SettingsViewModel(@NonNull Application application) {
         super(application);
         sharedPreferences = PreferenceManager.getDefaultSharedPreferences(application);
+        storedUsage = AppDatabase.getInstance(application).storageUsageDao()
+                .observe(StorageUsage.SCOPE_STORED, StorageUsage.NAME_ALL);
         loadSettings();
     }
 
@@ -52,6 +85,14 @@ public class SettingsViewModel extends AndroidViewModel {
         defaultCategory.setValue(sharedPreferences.getString(PREF_DEFAULT_CATEGORY, DEFAULT_CATEGORY));
         themeMode.setValue(sharedPreferences.getString(PREF_THEME_MODE, DEFAULT_THEME));
         sortOrder.setValue(sharedPreferences.getString(PREF_SORT_ORDER, DEFAULT_SORT_ORDER));
+        reminderBatchWindowSeconds.setValue(sharedPreferences.getInt(PREF_REMINDER_BATCH_WINDOW, DEFAULT_REMINDER_BATCH_WINDOW));
+        quietHoursEnabled.setValue(sharedPreferences.getBoolean(PREF_QUIET_HOURS_ENABLED, false));
+        quietHoursStart.setValue(sharedPreferences.getInt(PREF_QUIET_HOURS_START, DEFAULT_QUIET_HOURS_START));
+        quietHoursEnd.setValue(sharedPreferences.getInt(PREF_QUIET_HOURS_END, DEFAULT_QUIET_HOURS_END));
+        dailyDigestEnabled.setValue(sharedPreferences.getBoolean(PREF_DAILY_DIGEST_ENABLED, false));
+        dailyDigestTime.setValue(sharedPreferences.getInt(PREF_DAILY_DIGEST_TIME, DEFAULT_DAILY_DIGEST_TIME));
+        categoryChannels.setValue(sharedPreferences.getBoolean(PREF_CATEGORY_CHANNELS, false));
+        storageQuotaMb.setValue(sharedPreferences.getInt(PREF_STORAGE_QUOTA_MB, DEFAULT_STORAGE_QUOTA_MB));
     }
 
 
@@ -79,6 +120,42 @@ public class SettingsViewModel extends AndroidViewModel {
         return sortOrder;
     }
 
+    public MutableLiveData<Integer> getReminderBatchWindowSeconds() {
+        return reminderBatchWindowSeconds;
+    }
+
+    public MutableLiveData<Boolean> getQuietHoursEnabled() {
+        return quietHoursEnabled;
+    }
+
+    public MutableLiveData<Integer> getQuietHoursStart() {
+        return quietHoursStart;
+    }
+
+    public MutableLiveData<Integer> getQuietHoursEnd() {
+        return quietHoursEnd;
+    }
+
+    public MutableLiveData<Boolean> getDailyDigestEnabled() {
+        return dailyDigestEnabled;
+    }
+
+    public MutableLiveData<Integer> getDailyDigestTime() {
+        return dailyDigestTime;
+    }
+
+    public MutableLiveData<Boolean> getCategoryChannels() {
+        return categoryChannels;
+    }
+
+    public MutableLiveData<Integer> getStorageQuotaMb() {
+        return storageQuotaMb;
+    }
+
+    public LiveData<StorageUsage> getStoredUsage() {
+        return storedUsage;
+    }
+
 
     public void setHideCompletedTasks(boolean hide) {
         sharedPreferences.edit().putBoolean(PREF_HIDE_COMPLETED, hide).apply();
@@ -110,6 +187,59 @@ public class SettingsViewModel extends AndroidViewModel {
         sortOrder.setValue(order);
     }
 
+    public void setReminderBatchWindowSeconds(int seconds) {
+        sharedPreferences.edit().putInt(PREF_REMINDER_BATCH_WINDOW, seconds).apply();
+        reminderBatchWindowSeconds.setValue(seconds);
+    }
+
+    public void setQuietHoursEnabled(boolean enabled) {
+        sharedPreferences.edit().putBoolean(PREF_QUIET_HOURS_ENABLED, enabled).apply();
+        quietHoursEnabled.setValue(enabled);
+        rescheduleReminders();
+    }
+
+    public void setQuietHoursStart(int minuteOfDay) {
+        sharedPreferences.edit().putInt(PREF_QUIET_HOURS_START, minuteOfDay).apply();
+        quietHoursStart.setValue(minuteOfDay);
+        rescheduleReminders();
+    }
+
+    public void setQuietHoursEnd(int minuteOfDay) {
+        sharedPreferences.edit().putInt(PREF_QUIET_HOURS_END, minuteOfDay).apply();
+        quietHoursEnd.setValue(minuteOfDay);
+        rescheduleReminders();
+    }
+
+    public void setDailyDigestEnabled(boolean enabled) {
+        sharedPreferences.edit().putBoolean(PREF_DAILY_DIGEST_ENABLED, enabled).apply();
+        dailyDigestEnabled.setValue(enabled);
+        rescheduleReminders();
+    }
+
+    public void setDailyDigestTime(int minuteOfDay) {
+        sharedPreferences.edit().putInt(PREF_DAILY_DIGEST_TIME, minuteOfDay).apply();
+        dailyDigestTime.setValue(minuteOfDay);
+        rescheduleReminders();
+    }
+
+    public void setCategoryChannels(boolean enabled) {
+        sharedPreferences.edit().putBoolean(PREF_CATEGORY_CHANNELS, enabled).apply();
+        categoryChannels.setValue(enabled);
+    }
+
+    public void setStorageQuotaMb(int megabytes) {
+        sharedPreferences.edit().putInt(PREF_STORAGE_QUOTA_MB, megabytes).apply();
+        storageQuotaMb.setValue(megabytes);
+    }
+
+    private void rescheduleReminders() {
+        // The armed alarms were placed against the old settings.
+        executorService.execute(() -> {
+            new ReminderScheduler(getApplication()).rescheduleNext();
+            NotificationHelper.getInstance(getApplication()).scheduleDailyDigest();
+        });
+    }
+
 
     public boolean isCategoryVisible(String category) {
         Set<String> visible = visibleCategories.getValue();
@@ -145,9 +275,18 @@ public class SettingsViewModel extends AndroidViewModel {
         editor.putString(PREF_DEFAULT_CATEGORY, DEFAULT_CATEGORY);
         editor.putString(PREF_THEME_MODE, DEFAULT_THEME);
         editor.putString(PREF_SORT_ORDER, DEFAULT_SORT_ORDER);
+        editor.putInt(PREF_REMINDER_BATCH_WINDOW, DEFAULT_REMINDER_BATCH_WINDOW);
+        editor.putBoolean(PREF_QUIET_HOURS_ENABLED, false);
+        editor.putInt(PREF_QUIET_HOURS_START, DEFAULT_QUIET_HOURS_START);
+        editor.putInt(PREF_QUIET_HOURS_END, DEFAULT_QUIET_HOURS_END);
+        editor.putBoolean(PREF_DAILY_DIGEST_ENABLED, false);
+        editor.putInt(PREF_DAILY_DIGEST_TIME, DEFAULT_DAILY_DIGEST_TIME);
+        editor.putBoolean(PREF_CATEGORY_CHANNELS, false);
+        editor.putInt(PREF_STORAGE_QUOTA_MB, DEFAULT_STORAGE_QUOTA_MB);
         editor.apply();
 
         loadSettings();
+        rescheduleReminders();
     }
 
 
@@ -176,6 +315,43 @@ public class SettingsViewModel extends AndroidViewModel {
         return value != null ? value : DEFAULT_SORT_ORDER;
     }
 
+    public int getCurrentReminderBatchWindowSeconds() {
+        Integer value = reminderBatchWindowSeconds.getValue();
+        return value != null ? value : DEFAULT_REMINDER_BATCH_WINDOW;
+    }
+
+    public boolean getCurrentQuietHoursEnabled() {
+        return Boolean.TRUE.equals(quietHoursEnabled.getValue());
+    }
+
+    public int getCurrentQuietHoursStart() {
+        Integer value = quietHoursStart.getValue();
+        return value != null ? value : DEFAULT_QUIET_HOURS_START;
+    }
+
+    public int getCurrentQuietHoursEnd() {
+        Integer value = quietHoursEnd.getValue();
+        return value != null ? value : DEFAULT_QUIET_HOURS_END;
+    }
+
+    public boolean getCurrentDailyDigestEnabled() {
+        return Boolean.TRUE.equals(dailyDigestEnabled.getValue());
+    }
+
+    public int getCurrentDailyDigestTime() {
+        Integer value = dailyDigestTime.getValue();
+        return value != null ? value : DEFAULT_DAILY_DIGEST_TIME;
+    }
+
+    public boolean getCurrentCategoryChannels() {
+        return Boolean.TRUE.equals(categoryChannels.getValue());
+    }
+
+    public int getCurrentStorageQuotaMb() {
+        Integer value = storageQuotaMb.getValue();
+        return value != null ? value : DEFAULT_STORAGE_QUOTA_MB;
+    }
+
 
 
     public String exportSettings() {
@@ -186,6 +362,14 @@ public class SettingsViewModel extends AndroidViewModel {
         sb.append("defaultCategory:").append(getCurrentDefaultCategory()).append(";");
         sb.append("theme:").append(getCurrentThemeMode()).append(";");
         sb.append("sortOrder:").append(getCurrentSortOrder()).append(";");
+        sb.append("reminderBatchWindow:").append(getCurrentReminderBatchWindowSeconds()).append(";");
+        sb.append("quietHours:").append(getCurrentQuietHoursEnabled()).append(";");
+        sb.append("quietHoursStart:").append(getCurrentQuietHoursStart()).append(";");
+        sb.append("quietHoursEnd:").append(getCurrentQuietHoursEnd()).append(";");
+        sb.append("dailyDigest:").append(getCurrentDailyDigestEnabled()).append(";");
+        sb.append("dailyDigestTime:").append(getCurrentDailyDigestTime()).append(";");
+        sb.append("categoryChannels:").append(getCurrentCategoryChannels()).append(";");
+        sb.append("storageQuota:").append(getCurrentStorageQuotaMb()).append(";");
         return sb.toString();
     }
 
@@ -215,8 +399,38 @@ public class SettingsViewModel extends AndroidViewModel {
                     case "sortOrder":
                         setSortOrder(value);
                         break;
+                    case "reminderBatchWindow":
+                        setReminderBatchWindowSeconds(Integer.parseInt(value));
+                        break;
+                    case "quietHours":
+                        setQuietHoursEnabled(Boolean.parseBoolean(value));
+                        break;
+                    case "quietHoursStart":
+                        setQuietHoursStart(Integer.parseInt(value));
+                        break;
+                    case "quietHoursEnd":
+                        setQuietHoursEnd(Integer.parseInt(value));
+                        break;
+                    case "dailyDigest":
+                        setDailyDigestEnabled(Boolean.parseBoolean(value));
+                        break;
+                    case "dailyDigestTime":
+                        setDailyDigestTime(Integer.parseInt(value));
+                        break;
+                    case "categoryChannels":
+                        setCategoryChannels(Boolean.parseBoolean(value));
+                        break;
+                    case "storageQuota":
+                        setStorageQuotaMb(Integer.parseInt(value));
+                        break;
                 }
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        executorService.shutdown();
+    }
+}
@@ -10,9 +10,11 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
 
 import com.example.todo.data.database.entities.Attachment;
+import com.example.todo.data.database.entities.Reminder;
 import com.example.todo.data.database.entities.Task;
 import com.example.todo.data.repository.TaskRepository;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class TaskViewModel extends AndroidViewModel {
@@ -110,6 +112,14 @@ public class TaskViewModel extends AndroidViewModel {
         repository.update(task);
     }
 
+    public void updateTask(Task task, List<Integer> reminderOffsets) {
+        repository.update(task, reminderOffsets);
+    }
+
+    public LiveData<List<Reminder>> getRemindersForTask(int taskId) {
+        return repository.getRemindersForTask(taskId);
+    }
+
     public void deleteTask(Task task) {
         repository.delete(task);
     }
@@ -131,9 +141,18 @@ public class TaskViewModel extends AndroidViewModel {
         return repository.getAttachmentsForTask(taskId);
     }
 
+    public void duplicateTask(Task source, Task copy) {
+        repository.duplicate(source, copy, null);
+    }
+
     public void insertTaskWithAttachments(Task task, List<String> attachmentPaths) {
-        repository.insert(task, insertedTask -> {
+        insertTaskWithAttachments(task, attachmentPaths, null);
+    }
+
+    public void insertTaskWithAttachments(Task task, List<String> attachmentPaths, List<Integer> reminderOffsets) {
+        repository.insert(task, reminderOffsets, insertedTask -> {
             if (insertedTask != null && attachmentPaths != null && !attachmentPaths.isEmpty()) {
+                List<Attachment> attachments = new ArrayList<>();
                 for (String attachmentData : attachmentPaths) {
                     String[] parts = attachmentData.split("\\|");
                     if (parts.length >= 4) {
@@ -143,10 +162,17 @@ public class TaskViewModel extends AndroidViewModel {
                         attachment.setFileName(parts[1]);
                         attachment.setFileSize(Long.parseLong(parts[2]));
                         attachment.setFileType(parts[3]);
-
-                        insertAttachment(attachment);
+                        if (parts.length >= 5) {
+                            attachment.setContentHash(parts[4]);
+                        }
+                        if (parts.length >= 6) {
+                            attachment.setMimeType(parts[5]);
+                        }
+
+                        attachments.add(attachment);
                     }
                 }
+                insertAttachments(attachments);
             }
         });
     }
@@ -192,6 +218,10 @@ public class TaskViewModel extends AndroidViewModel {
         });
     }
 
+    public void insertAttachments(List<Attachment> attachments) {
+        repository.insertAttachments(attachments, null);
+    }
+
     public void deleteAttachment(Attachment attachment) {
         repository.deleteAttachment(attachment);
     }
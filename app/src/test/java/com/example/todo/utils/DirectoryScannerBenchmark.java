@@ -0,0 +1,132 @@
+package com.example.todo.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Times {@link DirectoryScanner} against the plain recursive walk it replaced, on a
+ * synthetic tree. Runs on a desktop JVM with no test framework:
+ *
+ * <pre>
+ * java com.example.todo.utils.DirectoryScannerBenchmark [files] [parallelism]
+ * </pre>
+ *
+ * The tree is 100 directories of small files, each holding a few nested subdirectories,
+ * built once in a temporary directory and deleted at the end. Each walk sums file sizes
+ * and is timed over several runs after a warm-up; the median is reported. The first pass
+ * warms the page cache, so the figures measure listing and stat overhead, not disk reads.
+ */
+public class DirectoryScannerBenchmark {
+
+    private static final int DEFAULT_FILES = 100_000;
+    private static final int TOP_LEVEL_DIRS = 100;
+    private static final int NESTED_DIRS = 4;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 9;
+
+    public static void main(String[] args) throws IOException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILES;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+        File root = Files.createTempDirectory("scanner_benchmark").toFile();
+        try {
+            long expectedBytes = buildTree(root, fileCount);
+            System.out.println("Tree: " + fileCount + " files, " + expectedBytes + " bytes, parallelism " + parallelism);
+
+            DirectoryScanner scanner = new DirectoryScanner(parallelism);
+            try {
+                report("recursive walk", () -> recursiveSize(root), expectedBytes);
+                report("DirectoryScanner", () -> {
+                    DirectoryScanner.SizeVisitor visitor = new DirectoryScanner.SizeVisitor();
+                    scanner.scan(root, visitor);
+                    return visitor.getBytes();
+                }, expectedBytes);
+            } finally {
+                scanner.shutdown();
+            }
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    private interface Walk {
+        long run();
+    }
+
+    private static void report(String name, Walk walk, long expectedBytes) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            check(name, walk.run(), expectedBytes);
+        }
+
+        long[] timings = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            long bytes = walk.run();
+            timings[i] = System.nanoTime() - start;
+            check(name, bytes, expectedBytes);
+        }
+        Arrays.sort(timings);
+        System.out.printf("%-18s median %7.1f ms  min %7.1f ms  max %7.1f ms%n", name,
+                timings[MEASURED_RUNS / 2] / 1e6, timings[0] / 1e6, timings[MEASURED_RUNS - 1] / 1e6);
+    }
+
+    private static void check(String name, long bytes, long expectedBytes) {
+        if (bytes != expectedBytes) {
+            throw new IllegalStateException(name + " counted " + bytes + " bytes, expected " + expectedBytes);
+        }
+    }
+
+    /**
+     * The walk FileUtils.getDirectorySize did before it moved onto the scanner.
+     */
+    private static long recursiveSize(File directory) {
+        long size = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    size += recursiveSize(file);
+                } else {
+                    size += file.length();
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long buildTree(File root, int fileCount) throws IOException {
+        long bytes = 0;
+        byte[] content = new byte[64];
+        for (int i = 0; i < fileCount; i++) {
+            File dir = new File(root, "d" + (i % TOP_LEVEL_DIRS));
+            int nested = (i / TOP_LEVEL_DIRS) % (NESTED_DIRS + 1);
+            if (nested > 0) {
+                dir = new File(dir, "n" + nested);
+            }
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+
+            int length = 1 + i % content.length;
+            try (FileOutputStream outputStream = new FileOutputStream(new File(dir, "f" + i))) {
+                outputStream.write(content, 0, length);
+            }
+            bytes += length;
+        }
+        return bytes;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
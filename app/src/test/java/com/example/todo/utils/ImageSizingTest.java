@@ -0,0 +1,83 @@
+package com.example.todo.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ImageSizingTest {
+
+    @Test
+    public void fortyEightMegapixelLandscapeIsSampledByFourThenScaled() {
+        assertArrayEquals(new int[]{1920, 1440}, ImageSizing.fitWithin(8000, 6000, 1920, 1920));
+        // 8000x6000 / 4 = 2000x1500, the last step that stays above 1920x1440.
+        assertEquals(4, ImageSizing.calculateInSampleSize(8000, 6000, 1920, 1920));
+    }
+
+    @Test
+    public void fortyEightMegapixelPortraitKeepsItsOrientation() {
+        assertArrayEquals(new int[]{1440, 1920}, ImageSizing.fitWithin(6000, 8000, 1920, 1920));
+        assertEquals(4, ImageSizing.calculateInSampleSize(6000, 8000, 1920, 1920));
+    }
+
+    @Test
+    public void thumbnailOfLargePhotoSamplesDeeply() {
+        assertArrayEquals(new int[]{96, 72}, ImageSizing.fitWithin(4000, 3000, 96, 96));
+        // 4000x3000 / 32 = 125x93; / 64 would be 62x46, below the target.
+        assertEquals(32, ImageSizing.calculateInSampleSize(4000, 3000, 96, 96));
+    }
+
+    @Test
+    public void panoramaIsLimitedByItsLongSide() {
+        assertArrayEquals(new int[]{1920, 160}, ImageSizing.fitWithin(12000, 1000, 1920, 1920));
+        assertEquals(4, ImageSizing.calculateInSampleSize(12000, 1000, 1920, 1920));
+    }
+
+    @Test
+    public void extremeAspectRatioNeverScalesToZero() {
+        assertArrayEquals(new int[]{100, 1}, ImageSizing.fitWithin(10000, 3, 100, 100));
+        // A 3 pixel side only halves once before dropping below the 1 pixel target.
+        assertEquals(2, ImageSizing.calculateInSampleSize(10000, 3, 100, 100));
+    }
+
+    @Test
+    public void targetLargerThanSourceNeverUpscales() {
+        assertArrayEquals(new int[]{800, 600}, ImageSizing.fitWithin(800, 600, 1920, 1920));
+        assertEquals(1, ImageSizing.calculateInSampleSize(800, 600, 1920, 1920));
+    }
+
+    @Test
+    public void sourceMatchingOneBoundIsKept() {
+        assertArrayEquals(new int[]{1920, 1080}, ImageSizing.fitWithin(1920, 1080, 1920, 1920));
+        assertEquals(1, ImageSizing.calculateInSampleSize(1920, 1080, 1920, 1920));
+    }
+
+    @Test
+    public void invalidDimensionsAreHandled() {
+        assertArrayEquals(new int[]{0, 0}, ImageSizing.fitWithin(0, 600, 100, 100));
+        assertEquals(1, ImageSizing.calculateInSampleSize(0, 600, 100, 100));
+        assertEquals(1, ImageSizing.calculateInSampleSize(800, 600, 0, 100));
+    }
+
+    @Test
+    public void sampleSizeIsTheLargestThatStillCoversTheTarget() {
+        int[] sizes = {1, 3, 97, 640, 1079, 1920, 2001, 4032, 6000, 8000, 12000};
+        int[] bounds = {48, 96, 1080, 1920};
+        for (int width : sizes) {
+            for (int height : sizes) {
+                for (int bound : bounds) {
+                    int[] target = ImageSizing.fitWithin(width, height, bound, bound);
+                    assertTrue(target[0] <= bound && target[1] <= bound);
+                    assertTrue(target[0] <= width && target[1] <= height);
+
+                    int sampleSize = ImageSizing.calculateInSampleSize(width, height, bound, bound);
+                    assertEquals("power of two", 0, sampleSize & (sampleSize - 1));
+                    assertTrue(width / sampleSize >= target[0] && height / sampleSize >= target[1]);
+                    int next = sampleSize * 2;
+                    assertTrue(width / next < target[0] || height / next < target[1]);
+                }
+            }
+        }
+    }
+}